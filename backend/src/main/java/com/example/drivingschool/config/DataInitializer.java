@@ -2,6 +2,7 @@ package com.example.drivingschool.config;
 
 import com.example.drivingschool.model.*;
 import com.example.drivingschool.repository.*;
+import com.example.drivingschool.service.ReviewService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,7 +19,7 @@ public class DataInitializer {
                                InstructorRepository instructorRepository,
                                LessonSlotRepository slotRepository,
                                UserRepository userRepository,
-                               ReviewRepository reviewRepository) {
+                               ReviewService reviewService) {
         return args -> {
             if (schoolRepository.count() > 0) {
                 return;
@@ -33,6 +34,8 @@ public class DataInitializer {
             urban.setPricePerLesson(BigDecimal.valueOf(350));
             urban.setDefaultLessonMinutes(60);
             urban.setRating(4.7);
+            urban.setLatitude(-26.1076);
+            urban.setLongitude(28.0567);
 
             School coastal = new School();
             coastal.setName("Coastal Driving School");
@@ -43,6 +46,8 @@ public class DataInitializer {
             coastal.setPricePerLesson(BigDecimal.valueOf(320));
             coastal.setDefaultLessonMinutes(60);
             coastal.setRating(4.5);
+            coastal.setLatitude(-33.9180);
+            coastal.setLongitude(18.3860);
             School midlands = new School();
             midlands.setName("Midlands Driving Institute");
             midlands.setCity("Durban");
@@ -52,6 +57,8 @@ public class DataInitializer {
             midlands.setPricePerLesson(BigDecimal.valueOf(300));
             midlands.setDefaultLessonMinutes(60);
             midlands.setRating(4.4);
+            midlands.setLatitude(-29.8490);
+            midlands.setLongitude(31.0000);
 
             School platinum = new School();
             platinum.setName("Platinum Drive School");
@@ -62,6 +69,8 @@ public class DataInitializer {
             platinum.setPricePerLesson(BigDecimal.valueOf(380));
             platinum.setDefaultLessonMinutes(60);
             platinum.setRating(4.9);
+            platinum.setLatitude(-25.7461);
+            platinum.setLongitude(28.1881);
 
             schoolRepository.saveAll(List.of(urban, coastal, platinum,midlands));
 
@@ -132,12 +141,9 @@ public class DataInitializer {
             admin.setPassword("admin");
             userRepository.save(admin);
 
-            Review review = new Review();
-            review.setReviewer(learner);
-            review.setSchool(urban);
-            review.setRating(5);
-            review.setComment("Friendly instructor and clean car!");
-            reviewRepository.save(review);
+            // Through the service so the school and instructor rating totals include it
+            reviewService.createReview(urban.getId(), learner.getId(), sipho.getId(), 5,
+                    "Friendly instructor and clean car!");
         };
     }
 }
@@ -52,6 +52,7 @@ public class DatabaseConfig {
         if (dbUrl != null && !dbUrl.isEmpty() && !dbUrl.startsWith("${")) {
             String jdbcUrl = dbUrl.startsWith("jdbc:") ? dbUrl : "jdbc:postgresql://" + dbUrl;
             if (!jdbcUrl.contains("ssl=")) jdbcUrl += (jdbcUrl.contains("?") ? "&" : "?") + "ssl=true&sslmode=require";
+            if (!jdbcUrl.contains("reWriteBatchedInserts=")) jdbcUrl += (jdbcUrl.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
             config.setJdbcUrl(jdbcUrl);
             config.setUsername(dbUser != null ? dbUser : "");
             config.setPassword(dbPassword != null ? dbPassword : "");
@@ -96,7 +97,8 @@ public class DatabaseConfig {
                 String dbUrl = "jdbc:postgresql://" + dbUri.getHost() + ':' + port + "/" + dbName
                     + "?user=" + encUser + "&password=" + encPass
                     + "&ssl=true&sslmode=require"
-                    + "&connectTimeout=60&socketTimeout=60";
+                    + "&connectTimeout=60&socketTimeout=60"
+                    + "&reWriteBatchedInserts=true";
                 
                 System.out.println("Parsed DB URL - Host: " + dbUri.getHost() + ", Database: " + dbUri.getPath()
                     + (urlToUse == externalDatabaseUrl ? " (EXTERNAL_DATABASE_URL)" : " (DATABASE_URL)"));
@@ -0,0 +1,171 @@
+package com.example.drivingschool.config;
+
+import com.example.drivingschool.model.SlotCounts;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.service.AvailabilityBitmap;
+import com.example.drivingschool.service.AvailabilityService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * V10: packs the driver_availability rows left behind by V2 into availability_month bitmaps,
+ * with their slot counts, so booked, locked, unavailable and day-off state survives the upgrade.
+ * Months that already have a bitmap were edited since and are left alone. Ids come from
+ * availability_month_seq in whole blocks of 50, the same way Hibernate's pooled generator takes them.
+ */
+@Component
+public class DriverAvailabilityMigration implements JavaMigration {
+    private static final int ID_BLOCK = 50;
+
+    private record MonthKey(long instructorId, YearMonth month) {}
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("10");
+    }
+
+    @Override
+    public String getDescription() {
+        return "driver availability to month bitmaps";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        Map<MonthKey, AvailabilityBitmap> months = readOldRows(connection);
+        months.keySet().removeAll(existingMonths(connection));
+        months.values().removeIf(AvailabilityBitmap::isEmpty);
+        if (months.isEmpty()) {
+            return;
+        }
+        IdBlocks ids = new IdBlocks(connection);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into availability_month (id, availability_month, slot_states, version, instructor_id, "
+                        + "available_slots, booked_slots, locked_slots, unavailable_slots, days_off) "
+                        + "values (?, ?, ?, 0, ?, ?, ?, ?, ?, ?)")) {
+            for (Map.Entry<MonthKey, AvailabilityBitmap> month : months.entrySet()) {
+                AvailabilityBitmap bitmap = month.getValue();
+                SlotCounts counts = bitmap.counts();
+                insert.setLong(1, ids.next());
+                insert.setString(2, month.getKey().month().toString());
+                insert.setString(3, bitmap.encode());
+                insert.setLong(4, month.getKey().instructorId());
+                insert.setInt(5, counts.getAvailable());
+                insert.setInt(6, counts.getBooked());
+                insert.setInt(7, counts.getLocked());
+                insert.setInt(8, counts.getUnavailable());
+                insert.setInt(9, counts.getDaysOff());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static Map<MonthKey, AvailabilityBitmap> readOldRows(Connection connection) throws SQLException {
+        Map<MonthKey, AvailabilityBitmap> months = new LinkedHashMap<>();
+        Map<MonthKey, Set<Integer>> daysOff = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select instructor_id, available_date, time_slot, status, "
+                     + "is_unavailable_day from driver_availability "
+                     + "where instructor_id is not null and available_date is not null order by instructor_id, available_date")) {
+            while (rows.next()) {
+                LocalDate date = rows.getObject(2, LocalDate.class);
+                MonthKey key = new MonthKey(rows.getLong(1), YearMonth.from(date));
+                AvailabilityBitmap bitmap = months.computeIfAbsent(key, k -> new AvailabilityBitmap(k.month().lengthOfMonth()));
+                if (rows.getBoolean(5)) {
+                    daysOff.computeIfAbsent(key, k -> new HashSet<>()).add(date.getDayOfMonth());
+                    continue;
+                }
+                int slot = AvailabilityService.slotIndex(rows.getString(3));
+                SlotStatus status = statusOf(rows.getString(4));
+                if (slot >= 0 && status != null) {
+                    bitmap.set(date.getDayOfMonth(), slot, status);
+                }
+            }
+        }
+        // Setting a day off used to sit on top of the day's slots, so it wins over them here too
+        daysOff.forEach((key, days) -> days.forEach(day -> months.get(key).setDayOff(day, true)));
+        return months;
+    }
+
+    private static SlotStatus statusOf(String value) {
+        for (SlotStatus status : SlotStatus.values()) {
+            if (status.value().equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private static Set<MonthKey> existingMonths(Connection connection) throws SQLException {
+        Set<MonthKey> existing = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "select instructor_id, availability_month from availability_month where instructor_id is not null")) {
+            while (rows.next()) {
+                existing.add(new MonthKey(rows.getLong(1), YearMonth.parse(rows.getString(2))));
+            }
+        }
+        return existing;
+    }
+
+    /** Hands out ids from availability_month_seq; each sequence value V reserves V - 49 to V. */
+    private static final class IdBlocks {
+        private final Connection connection;
+        private final String product;
+        private long next;
+        private long last = -1;
+
+        IdBlocks(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        }
+
+        long next() throws SQLException {
+            if (next > last) {
+                last = nextSequenceValue();
+                next = Math.max(1, last - ID_BLOCK + 1);
+            }
+            return next++;
+        }
+
+        private long nextSequenceValue() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                if (product.contains("mysql") || product.contains("mariadb")) {
+                    // Hibernate emulates the sequence with a single-row table on MySQL
+                    long value = single(statement, "select next_val from availability_month_seq for update");
+                    statement.executeUpdate("update availability_month_seq set next_val = next_val + " + ID_BLOCK);
+                    return value;
+                }
+                if (product.contains("postgresql")) {
+                    return single(statement, "select nextval('availability_month_seq')");
+                }
+                return single(statement, "select next value for availability_month_seq");
+            }
+        }
+
+        private static long single(Statement statement, String sql) throws SQLException {
+            try (ResultSet result = statement.executeQuery(sql)) {
+                result.next();
+                return result.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.drivingschool.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Warns about requests that run more SQL statements than the budget allows, which is how an N+1
+ * on a list endpoint shows up. The count covers serialization too, since the session is not kept
+ * open for the view.
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+
+    private final int maxStatements;
+
+    public QueryBudgetInterceptor(@Value("${query.budget.max-statements:15}") int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // Streaming and async handlers keep working on other threads; their count here means nothing
+        if (request.isAsyncStarted()) {
+            return;
+        }
+        int statements = QueryCounter.count();
+        if (statements > maxStatements) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            log.warn("{} {} ran {} SQL statements, budget is {}", request.getMethod(),
+                    pattern != null ? pattern : request.getRequestURI(), statements, maxStatements);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.drivingschool.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -8,4 +11,24 @@ public class WebConfig implements WebMvcConfigurer {
     // Frontend is deployed separately on Netlify
     // No need to serve static files from Spring Boot
     // This config is kept for potential future use if serving frontend from Spring Boot
+
+    // Streaming exports run as async requests; the container default (30s) would cut them off
+    @Value("${web.async.timeout-ms:1800000}")
+    private long asyncTimeoutMs;
+
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+
+    public WebConfig(QueryBudgetInterceptor queryBudgetInterceptor) {
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryBudgetInterceptor).addPathPatterns("/api/**");
+    }
 }
@@ -2,8 +2,17 @@ package com.example.drivingschool.controller;
 
 import com.example.drivingschool.model.*;
 import com.example.drivingschool.repository.*;
+import com.example.drivingschool.service.AvailabilityService;
+import com.example.drivingschool.service.AvailabilityStream;
+import com.example.drivingschool.service.BookingService;
+import com.example.drivingschool.service.CascadeDeleteService;
+import com.example.drivingschool.service.CursorPage;
+import com.example.drivingschool.service.ReviewService;
+import com.example.drivingschool.service.SchoolService;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -19,22 +28,31 @@ public class AdminController {
     private final SchoolRepository schoolRepository;
     private final InstructorRepository instructorRepository;
     private final LessonSlotRepository slotRepository;
-    private final BookingRepository bookingRepository;
-    private final ReviewRepository reviewRepository;
-    private final DriverAvailabilityRepository driverAvailabilityRepository;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final AvailabilityService availabilityService;
+    private final BookingService bookingService;
+    private final ReviewService reviewService;
+    private final SchoolService schoolService;
+    private final AvailabilityStream availabilityStream;
 
     public AdminController(SchoolRepository schoolRepository,
                            InstructorRepository instructorRepository,
                            LessonSlotRepository slotRepository,
-                           BookingRepository bookingRepository,
-                           ReviewRepository reviewRepository,
-                           DriverAvailabilityRepository driverAvailabilityRepository) {
+                           CascadeDeleteService cascadeDeleteService,
+                           AvailabilityService availabilityService,
+                           BookingService bookingService,
+                           ReviewService reviewService,
+                           SchoolService schoolService,
+                           AvailabilityStream availabilityStream) {
         this.schoolRepository = schoolRepository;
         this.instructorRepository = instructorRepository;
         this.slotRepository = slotRepository;
-        this.bookingRepository = bookingRepository;
-        this.reviewRepository = reviewRepository;
-        this.driverAvailabilityRepository = driverAvailabilityRepository;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.availabilityService = availabilityService;
+        this.bookingService = bookingService;
+        this.reviewService = reviewService;
+        this.schoolService = schoolService;
+        this.availabilityStream = availabilityStream;
     }
 
     // Schools
@@ -45,7 +63,9 @@ public class AdminController {
                                 String contactPhone,
                                 Double rating,
                                 BigDecimal pricePerLesson,
-                                Integer defaultLessonMinutes) {}
+                                Integer defaultLessonMinutes,
+                                Double latitude,
+                                Double longitude) {}
 
     @PostMapping("/schools")
     public School createSchool(@RequestBody SchoolRequest req) {
@@ -58,37 +78,33 @@ public class AdminController {
         s.setRating(req.rating());
         s.setPricePerLesson(req.pricePerLesson());
         s.setDefaultLessonMinutes(req.defaultLessonMinutes());
-        return schoolRepository.save(s);
+        s.setLatitude(req.latitude());
+        s.setLongitude(req.longitude());
+        return schoolService.saveSchool(s);
     }
 
     @PutMapping("/schools/{id}")
     public School updateSchool(@PathVariable("id") Long id, @RequestBody SchoolRequest req) {
-        School s = schoolRepository.findById(id).orElseThrow();
-        s.setName(req.name());
-        s.setDescription(req.description());
-        s.setCity(req.city());
-        s.setAddress(req.address());
-        s.setContactPhone(req.contactPhone());
-        s.setRating(req.rating());
-        s.setPricePerLesson(req.pricePerLesson());
-        s.setDefaultLessonMinutes(req.defaultLessonMinutes());
-        return schoolRepository.save(s);
+        return schoolService.updateSchool(id, req);
     }
 
+    // async=true deletes in small chunks in the background; poll the returned job via /jobs/{jobId}
     @DeleteMapping("/schools/{id}")
-    public void deleteSchool(@PathVariable("id") Long id) {
-        School school = schoolRepository.findById(id).orElseThrow();
-        // delete bookings -> slots -> instructors -> school
-        List<Instructor> instructors = instructorRepository.findBySchool(school);
-        for (Instructor inst : instructors) {
-            List<LessonSlot> slots = slotRepository.findByInstructor(inst);
-            for (LessonSlot slot : slots) {
-                bookingRepository.deleteBySlot(slot);
-            }
-            slotRepository.deleteAll(slots);
+    public ResponseEntity<?> deleteSchool(@PathVariable("id") Long id,
+                                          @RequestParam(defaultValue = "false", name = "async") boolean async) {
+        if (async) {
+            CascadeDeleteService.DeletionJob job = cascadeDeleteService.startSchoolDeletion(id);
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/admin/jobs/" + job.id())
+                    .body(job);
         }
-        instructorRepository.deleteAll(instructors);
-        schoolRepository.delete(school);
+        cascadeDeleteService.deleteSchool(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public CascadeDeleteService.DeletionJob deletionJob(@PathVariable("jobId") String jobId) {
+        return cascadeDeleteService.job(jobId).orElseThrow();
     }
 
     // Instructors
@@ -105,18 +121,12 @@ public class AdminController {
         inst.setBio(req.bio());
         inst.setRating(req.rating());
         inst.setSchool(school);
-        return instructorRepository.save(inst);
+        return schoolService.saveInstructor(inst);
     }
 
     @DeleteMapping("/instructors/{id}")
     public void deleteInstructor(@PathVariable("id") Long id) {
-        Instructor inst = instructorRepository.findById(id).orElseThrow();
-        List<LessonSlot> slots = slotRepository.findByInstructor(inst);
-        for (LessonSlot slot : slots) {
-            bookingRepository.deleteBySlot(slot);
-        }
-        slotRepository.deleteAll(slots);
-        instructorRepository.delete(inst);
+        cascadeDeleteService.deleteInstructor(id);
     }
 
     // Lesson slots
@@ -126,7 +136,7 @@ public class AdminController {
                               @NotNull BigDecimal price) {}
 
     @PostMapping("/slots")
-    public LessonSlot createSlot(@RequestBody SlotRequest req) {
+    public LessonSlotRepository.SlotView createSlot(@RequestBody SlotRequest req) {
         Instructor instructor = instructorRepository.findById(req.instructorId()).orElseThrow();
         LessonSlot slot = new LessonSlot();
         slot.setInstructor(instructor);
@@ -134,23 +144,41 @@ public class AdminController {
         slot.setDurationMinutes(req.durationMinutes());
         slot.setPrice(req.price());
         slot.setAvailable(true);
-        return slotRepository.save(slot);
+        slot = slotRepository.save(slot);
+        availabilityStream.slotChanged(slot);
+        return slotRepository.findViewById(slot.getId()).orElseThrow();
     }
 
     @DeleteMapping("/slots/{id}")
     public void deleteSlot(@PathVariable("id") Long id) {
-        slotRepository.deleteById(id);
+        bookingService.deleteSlot(id);
     }
 
-    // Bookings and reviews for admin visibility
+    // Bookings and reviews for admin visibility, newest first, one page at a time
     @GetMapping("/bookings")
-    public List<Booking> bookings() {
-        return bookingRepository.findAll();
+    public CursorPage<BookingRepository.BookingView> bookings(@RequestParam(required = false, name = "status") BookingStatus status,
+                                                             @RequestParam(required = false, name = "instructorId") Long instructorId,
+                                                             @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                             @RequestParam(required = false, name = "createdFrom") String createdFrom,
+                                                             @RequestParam(required = false, name = "createdTo") String createdTo,
+                                                             @RequestParam(required = false, name = "startFrom") String startFrom,
+                                                             @RequestParam(required = false, name = "startTo") String startTo,
+                                                             @RequestParam(required = false, name = "cursor") Long cursor,
+                                                             @RequestParam(required = false, name = "limit") Integer limit) {
+        BookingService.BookingFilter filter = new BookingService.BookingFilter(status, instructorId, schoolId,
+                CursorPage.parseDateTime(createdFrom), CursorPage.parseDateTime(createdTo),
+                CursorPage.parseDateTime(startFrom), CursorPage.parseDateTime(startTo));
+        return bookingService.listBookings(filter, cursor, limit);
     }
 
     @GetMapping("/reviews")
-    public List<Review> reviews() {
-        return reviewRepository.findAll();
+    public CursorPage<ReviewRepository.ReviewView> reviews(@RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                          @RequestParam(required = false, name = "createdFrom") String createdFrom,
+                                                          @RequestParam(required = false, name = "createdTo") String createdTo,
+                                                          @RequestParam(required = false, name = "cursor") Long cursor,
+                                                          @RequestParam(required = false, name = "limit") Integer limit) {
+        return reviewService.listReviews(schoolId, CursorPage.parseDateTime(createdFrom),
+                CursorPage.parseDateTime(createdTo), cursor, limit);
     }
 
     // Driver Availability Management
@@ -161,37 +189,9 @@ public class AdminController {
         try {
             Instructor instructor = instructorRepository.findById(instructorId)
                     .orElseThrow(() -> new RuntimeException("Instructor not found"));
-            
-            // Check if month is already enabled
-            List<DriverAvailability> existing = driverAvailabilityRepository.findByInstructorAndMonth(instructor, req.month());
-            if (!existing.isEmpty()) {
+            if (!availabilityService.enableMonth(instructor, req.month())) {
                 return java.util.Map.of("message", "Month already enabled");
             }
-            
-            // Generate all days and time slots for the month
-            String[] timeSlots = {"08:00", "09:00", "10:00", "11:00", "12:00", "13:00", "14:00", "15:00", "16:00", "17:00"};
-            java.time.YearMonth yearMonth = java.time.YearMonth.parse(req.month());
-            int daysInMonth = yearMonth.lengthOfMonth();
-
-            List<DriverAvailability> availabilities = new java.util.ArrayList<>();
-            for (int day = 1; day <= daysInMonth; day++) {
-                LocalDate date = yearMonth.atDay(day);
-                // Skip past dates
-                if (date.isBefore(LocalDate.now())) {
-                    continue;
-                }
-                for (String timeSlot : timeSlots) {
-                    DriverAvailability availability = new DriverAvailability();
-                    availability.setInstructor(instructor);
-                    availability.setMonth(req.month());
-                    availability.setDay(date);
-                    availability.setTimeSlot(timeSlot);
-                    availability.setStatus("available");
-                    availability.setUnavailableDay(false);
-                    availabilities.add(availability);
-                }
-            }
-            driverAvailabilityRepository.saveAll(availabilities);
             return java.util.Map.of("message", "Month enabled successfully");
         } catch (Exception e) {
             throw new RuntimeException("Failed to enable month: " + e.getMessage(), e);
@@ -203,8 +203,7 @@ public class AdminController {
         try {
             Instructor instructor = instructorRepository.findById(instructorId)
                     .orElseThrow(() -> new RuntimeException("Instructor not found"));
-            List<DriverAvailability> availabilities = driverAvailabilityRepository.findByInstructorAndMonth(instructor, month);
-            driverAvailabilityRepository.deleteAll(availabilities);
+            availabilityService.disableMonth(instructor, month);
             return java.util.Map.of("message", "Month disabled successfully");
         } catch (Exception e) {
             throw new RuntimeException("Failed to disable month: " + e.getMessage(), e);
@@ -218,18 +217,7 @@ public class AdminController {
         try {
             Instructor instructor = instructorRepository.findById(req.instructorId())
                     .orElseThrow(() -> new RuntimeException("Instructor not found"));
-            LocalDate date = LocalDate.parse(req.date());
-            List<DriverAvailability> existing = driverAvailabilityRepository.findByInstructorAndDay(instructor, date);
-            driverAvailabilityRepository.deleteAll(existing);
-
-            DriverAvailability unavailable = new DriverAvailability();
-            unavailable.setInstructor(instructor);
-            unavailable.setMonth(date.toString().substring(0, 7));
-            unavailable.setDay(date);
-            unavailable.setTimeSlot("00:00");
-            unavailable.setStatus("unavailable");
-            unavailable.setUnavailableDay(true);
-            driverAvailabilityRepository.save(unavailable);
+            availabilityService.setUnavailableDay(instructor, LocalDate.parse(req.date()));
             return java.util.Map.of("message", "Day set as unavailable");
         } catch (Exception e) {
             throw new RuntimeException("Failed to set unavailable day: " + e.getMessage(), e);
@@ -237,45 +225,24 @@ public class AdminController {
     }
 
     @GetMapping("/drivers/{instructorId}/availability")
-    public List<DriverAvailability> getDriverAvailability(@PathVariable("instructorId") Long instructorId) {
+    public List<AvailabilityService.AvailabilitySlot> getDriverAvailability(@PathVariable("instructorId") Long instructorId) {
         Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        return driverAvailabilityRepository.findByInstructor(instructor);
+        return availabilityService.allAvailability(instructor);
     }
 
     @GetMapping("/drivers/{instructorId}/months")
-    public java.util.Map<String, Object> getDriverMonths(@PathVariable("instructorId") Long instructorId) {
+    public java.util.Map<String, List<String>> getDriverMonths(@PathVariable("instructorId") Long instructorId) {
         Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        List<DriverAvailability> allAvail = driverAvailabilityRepository.findByInstructor(instructor);
-        
-        java.util.Set<String> enabledMonths = new java.util.HashSet<>();
-        java.util.Set<String> disabledMonths = new java.util.HashSet<>();
-        
-        // Get all unique months from availability
-        for (DriverAvailability av : allAvail) {
-            if (av.getMonth() != null) {
-                // Check if month has any available slots (not just unavailable days)
-                boolean hasAvailableSlots = allAvail.stream()
-                    .filter(a -> a.getMonth().equals(av.getMonth()))
-                    .anyMatch(a -> "available".equals(a.getStatus()) || "booked".equals(a.getStatus()));
-                
-                if (hasAvailableSlots) {
-                    enabledMonths.add(av.getMonth());
-                } else {
-                    // Check if it's a disabled month (all slots are unavailable or deleted)
-                    boolean allUnavailable = allAvail.stream()
-                        .filter(a -> a.getMonth().equals(av.getMonth()))
-                        .allMatch(a -> "unavailable".equals(a.getStatus()) || a.isUnavailableDay());
-                    if (allUnavailable) {
-                        disabledMonths.add(av.getMonth());
-                    }
-                }
-            }
+        return availabilityService.months(instructor);
+    }
+
+    // Slot counts per month, for heatmaps
+    @GetMapping("/drivers/{instructorId}/month-summary")
+    public List<AvailabilityService.MonthSummary> getDriverMonthSummary(@PathVariable("instructorId") Long instructorId) {
+        if (!instructorRepository.existsById(instructorId)) {
+            throw new RuntimeException("Instructor not found");
         }
-        
-        return java.util.Map.of(
-            "enabled", new java.util.ArrayList<>(enabledMonths),
-            "disabled", new java.util.ArrayList<>(disabledMonths)
-        );
+        return availabilityService.monthSummaries(instructorId);
     }
 
     public record SetUnavailableTimeSlotRequest(@NotNull String date, @NotNull String timeSlot) {}
@@ -287,30 +254,7 @@ public class AdminController {
         try {
             Instructor instructor = instructorRepository.findById(instructorId)
                     .orElseThrow(() -> new RuntimeException("Instructor not found"));
-            LocalDate date = LocalDate.parse(req.date());
-            
-            // Find the specific time slot
-            List<DriverAvailability> existing = driverAvailabilityRepository
-                    .findByInstructorAndDayAndTimeSlot(instructor, date, req.timeSlot());
-            
-            if (existing.isEmpty()) {
-                // Create a new unavailable entry
-                DriverAvailability unavailable = new DriverAvailability();
-                unavailable.setInstructor(instructor);
-                unavailable.setMonth(date.toString().substring(0, 7));
-                unavailable.setDay(date);
-                unavailable.setTimeSlot(req.timeSlot());
-                unavailable.setStatus("unavailable");
-                unavailable.setUnavailableDay(false);
-                driverAvailabilityRepository.save(unavailable);
-            } else {
-                // Update existing entry to unavailable
-                for (DriverAvailability av : existing) {
-                    av.setStatus("unavailable");
-                    driverAvailabilityRepository.save(av);
-                }
-            }
-            
+            availabilityService.setSlotStatus(instructor, LocalDate.parse(req.date()), req.timeSlot(), SlotStatus.UNAVAILABLE);
             return java.util.Map.of("message", "Time slot set as unavailable");
         } catch (Exception e) {
             throw new RuntimeException("Failed to set unavailable time slot: " + e.getMessage(), e);
@@ -324,25 +268,42 @@ public class AdminController {
         try {
             Instructor instructor = instructorRepository.findById(instructorId)
                     .orElseThrow(() -> new RuntimeException("Instructor not found"));
-            LocalDate date = LocalDate.parse(req.date());
-            
-            // Find the specific time slot
-            List<DriverAvailability> existing = driverAvailabilityRepository
-                    .findByInstructorAndDayAndTimeSlot(instructor, date, req.timeSlot());
-            
-            if (!existing.isEmpty()) {
-                // Update existing entry to available
-                for (DriverAvailability av : existing) {
-                    av.setStatus("available");
-                    av.setUnavailableDay(false);
-                    driverAvailabilityRepository.save(av);
-                }
-            }
-            
+            // Only slots that were enabled can be made available again
+            availabilityService.updateSlotStatus(instructor, LocalDate.parse(req.date()), req.timeSlot(), SlotStatus.AVAILABLE);
             return java.util.Map.of("message", "Time slot set as available");
         } catch (Exception e) {
             throw new RuntimeException("Failed to set available time slot: " + e.getMessage(), e);
         }
     }
-}
 
+    // The time slots (all of them when omitted) on every day from..to, for each instructor
+    public record BulkTimeSlotRequest(@NotNull List<Long> instructorIds,
+                                      @NotNull String from, // YYYY-MM-DD
+                                      @NotNull String to, // YYYY-MM-DD, inclusive
+                                      List<String> timeSlots) {}
+
+    // Booked and locked slots are never overwritten by the bulk edits
+    @PostMapping("/drivers/set-unavailable-timeslots")
+    public java.util.Map<String, Object> setUnavailableTimeSlots(@RequestBody BulkTimeSlotRequest req) {
+        return setTimeSlots(req, SlotStatus.UNAVAILABLE, false);
+    }
+
+    // Like set-available-timeslot, only slots that were enabled are made available again
+    @PostMapping("/drivers/set-available-timeslots")
+    public java.util.Map<String, Object> setAvailableTimeSlots(@RequestBody BulkTimeSlotRequest req) {
+        return setTimeSlots(req, SlotStatus.AVAILABLE, true);
+    }
+
+    private java.util.Map<String, Object> setTimeSlots(BulkTimeSlotRequest req, SlotStatus status, boolean openOnly) {
+        if (req.instructorIds() == null || req.instructorIds().isEmpty()) {
+            throw new IllegalArgumentException("At least one instructor id is required");
+        }
+        java.util.Set<Long> instructorIds = new java.util.HashSet<>(req.instructorIds());
+        if (instructorRepository.findAllById(instructorIds).size() != instructorIds.size()) {
+            throw new RuntimeException("Instructor not found");
+        }
+        int changed = availabilityService.setRange(instructorIds, LocalDate.parse(req.from()), LocalDate.parse(req.to()),
+                req.timeSlots(), status, openOnly);
+        return java.util.Map.of("message", "Time slots set as " + status.value(), "changed", changed);
+    }
+}
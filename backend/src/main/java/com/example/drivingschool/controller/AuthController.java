@@ -3,6 +3,7 @@ package com.example.drivingschool.controller;
 import com.example.drivingschool.model.User;
 import com.example.drivingschool.model.UserRole;
 import com.example.drivingschool.repository.UserRepository;
+import com.example.drivingschool.service.LearnerResolver;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.web.bind.annotation.*;
@@ -13,9 +14,11 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final UserRepository userRepository;
+    private final LearnerResolver learnerResolver;
 
-    public AuthController(UserRepository userRepository) {
+    public AuthController(UserRepository userRepository, LearnerResolver learnerResolver) {
         this.userRepository = userRepository;
+        this.learnerResolver = learnerResolver;
     }
 
     public record SignupRequest(
@@ -38,7 +41,9 @@ public class AuthController {
         user.setPhone(req.phone());
         user.setPassword(req.password()); // demo only, no hashing
         user.setRole(UserRole.LEARNER);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        learnerResolver.forget(req.email());
+        return saved;
     }
 
     @PostMapping("/login")
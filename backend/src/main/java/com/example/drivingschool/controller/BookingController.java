@@ -1,29 +1,94 @@
 package com.example.drivingschool.controller;
 
 import com.example.drivingschool.model.Booking;
-import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.model.BookingStatus;
+import com.example.drivingschool.repository.BookingRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.service.AvailabilityStream;
+import com.example.drivingschool.service.BatchBookingService;
+import com.example.drivingschool.service.BookingPipeline;
 import com.example.drivingschool.service.BookingService;
+import com.example.drivingschool.service.CursorPage;
+import com.example.drivingschool.service.IdempotencyService;
+import com.example.drivingschool.service.SlotSearchService;
+import com.example.drivingschool.service.WaitlistService;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin
 public class BookingController {
     private final BookingService bookingService;
+    private final SlotSearchService slotSearchService;
+    private final BatchBookingService batchBookingService;
+    private final IdempotencyService idempotencyService;
+    private final BookingPipeline bookingPipeline;
+    private final AvailabilityStream availabilityStream;
+    private final WaitlistService waitlistService;
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, SlotSearchService slotSearchService,
+                             BatchBookingService batchBookingService, IdempotencyService idempotencyService,
+                             BookingPipeline bookingPipeline, AvailabilityStream availabilityStream,
+                             WaitlistService waitlistService) {
         this.bookingService = bookingService;
+        this.slotSearchService = slotSearchService;
+        this.batchBookingService = batchBookingService;
+        this.idempotencyService = idempotencyService;
+        this.bookingPipeline = bookingPipeline;
+        this.availabilityStream = availabilityStream;
+        this.waitlistService = waitlistService;
     }
 
     @GetMapping("/instructors/{id}/slots")
-    public List<LessonSlot> slots(@PathVariable("id") Long id) {
+    public List<LessonSlotRepository.SlotView> slots(@PathVariable("id") Long id) {
         return bookingService.availableSlots(id);
     }
 
+    // Server-sent "availability" events with the calendar entries and lesson slots that changed;
+    // filters combine, and a reconnecting client should refetch what it shows
+    @GetMapping(path = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> availabilityStream(@RequestParam(required = false, name = "instructorId") Long instructorId,
+                                                         @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                         @RequestParam(required = false, name = "month") String month) { // YYYY-MM
+        try {
+            return ResponseEntity.ok(availabilityStream.subscribe(instructorId, schoolId, month));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+    }
+
+    // Next free lessons across every instructor matching the filters, earliest first
+    @GetMapping("/slots/search")
+    public List<SlotSearchService.FreeSlot> searchSlots(@RequestParam(required = false, name = "city") String city,
+                                                        @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                        @RequestParam(required = false, name = "from") String from, // YYYY-MM-DD
+                                                        @RequestParam(required = false, name = "to") String to, // YYYY-MM-DD
+                                                        @RequestParam(required = false, name = "after") String after, // HH:MM
+                                                        @RequestParam(defaultValue = "10", name = "limit") int limit) {
+        return slotSearchService.earliestFree(new SlotSearchService.SearchRequest(
+                city,
+                schoolId,
+                from != null ? LocalDate.parse(from) : null,
+                to != null ? LocalDate.parse(to) : null,
+                after != null ? LocalTime.parse(after) : null,
+                limit));
+    }
+
     public record CreateBookingRequest(
             Long userId,
             @NotNull Long slotId,
@@ -46,21 +111,93 @@ public class BookingController {
             String cardLast4
     ) {}
 
+    // One lesson of a package: an existing slot, or an instructor's open time slot on a date
+    public record BatchBookingItem(
+            Long slotId,
+            Long instructorId,
+            String date, // YYYY-MM-DD
+            String timeSlot // HH:MM
+    ) {}
+
+    public record CreateBatchBookingRequest(
+            Long userId,
+            String fullName,
+            String email,
+            String phone,
+            String paymentMethod,
+            String cardLast4,
+            BatchBookingService.Mode mode, // defaults to ALL_OR_NOTHING
+            List<BatchBookingItem> items
+    ) {}
+
+    // Booking creation accepts an Idempotency-Key header; a retry with the same key gets the first answer back
     @PostMapping("/bookings")
-    public Booking create(@RequestBody CreateBookingRequest request) {
-        return bookingService.createBooking(request);
+    public ResponseEntity<?> create(@RequestHeader(required = false, name = IdempotencyService.HEADER) String idempotencyKey,
+                                    @RequestBody CreateBookingRequest request) {
+        return idempotencyService.execute(idempotencyKey, "bookings", request,
+                () -> ResponseEntity.ok(bookingService.view(bookingService.createBooking(request))));
     }
 
     @PostMapping("/bookings/driver-flow")
-    public Booking createPending(@RequestBody CreateBookingRequest request) {
-        return bookingService.createPendingBooking(request);
+    public ResponseEntity<?> createPending(@RequestHeader(required = false, name = IdempotencyService.HEADER) String idempotencyKey,
+                                           @RequestBody CreateBookingRequest request) {
+        return idempotencyService.execute(idempotencyKey, "bookings/driver-flow", request,
+                () -> ResponseEntity.ok(bookingService.view(bookingService.createPendingBooking(request))));
     }
 
+    // async=true queues the booking and answers 202 at once; poll (or long-poll) the Location for the outcome
     @PostMapping("/bookings/driver-availability")
-    public ResponseEntity<?> createFromDriverAvailability(@RequestBody CreateDriverAvailabilityBookingRequest request) {
+    public ResponseEntity<?> createFromDriverAvailability(@RequestHeader(required = false, name = IdempotencyService.HEADER) String idempotencyKey,
+                                                          @RequestParam(defaultValue = "false", name = "async") boolean async,
+                                                          @RequestBody CreateDriverAvailabilityBookingRequest request) {
+        if (async) {
+            return idempotencyService.execute(idempotencyKey, "bookings/driver-availability?async", request,
+                    () -> queueFromDriverAvailability(request));
+        }
+        return idempotencyService.execute(idempotencyKey, "bookings/driver-availability", request,
+                () -> bookFromDriverAvailability(request));
+    }
+
+    private ResponseEntity<?> queueFromDriverAvailability(CreateDriverAvailabilityBookingRequest request) {
+        try {
+            BookingPipeline.QueuedBooking queued = bookingPipeline.submit(request);
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/api/bookings/queued/" + queued.ticket())
+                    .body(queued);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
+    // 202 while the booking is still queued; waitSeconds holds the request open until it is decided
+    @GetMapping("/bookings/queued/{ticket}")
+    public DeferredResult<ResponseEntity<?>> queuedBooking(@PathVariable("ticket") String ticket,
+                                                           @RequestParam(defaultValue = "0", name = "waitSeconds") int waitSeconds) {
+        long waitMillis = TimeUnit.SECONDS.toMillis(Math.max(0, Math.min(waitSeconds, BookingPipeline.MAX_WAIT_SECONDS)));
+        DeferredResult<ResponseEntity<?>> response = new DeferredResult<>(Math.max(1, waitMillis));
+        CompletableFuture<BookingPipeline.QueuedBooking> outcome = bookingPipeline.outcome(ticket).orElse(null);
+        if (outcome == null) {
+            response.setResult(ResponseEntity.notFound().build());
+        } else if (outcome.isDone()) {
+            response.setResult(ResponseEntity.ok(outcome.join()));
+        } else if (waitMillis == 0) {
+            response.setResult(ResponseEntity.accepted().body(BookingPipeline.queued(ticket)));
+        } else {
+            // Completed by the pipeline worker; no servlet thread is held while waiting
+            response.onTimeout(() -> response.setResult(ResponseEntity.accepted().body(BookingPipeline.queued(ticket))));
+            outcome.thenAccept(done -> response.setResult(ResponseEntity.ok(done)));
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> bookFromDriverAvailability(CreateDriverAvailabilityBookingRequest request) {
         try {
             Booking booking = bookingService.createBookingFromDriverAvailability(request);
-            return ResponseEntity.ok(booking);
+            return ResponseEntity.ok(bookingService.view(booking));
         } catch (IllegalStateException e) {
             return ResponseEntity.badRequest().body("{\"error\": \"" + e.getMessage().replace("\"", "\\\"") + "\"}");
         } catch (IllegalArgumentException e) {
@@ -74,18 +211,72 @@ public class BookingController {
         }
     }
 
+    @PostMapping("/bookings/batch")
+    public ResponseEntity<?> createBatch(@RequestHeader(required = false, name = IdempotencyService.HEADER) String idempotencyKey,
+                                         @RequestBody CreateBatchBookingRequest request) {
+        return idempotencyService.execute(idempotencyKey, "bookings/batch", request, () -> {
+            try {
+                return ResponseEntity.ok(batchBookingService.book(request));
+            } catch (IllegalArgumentException | IllegalStateException | java.util.NoSuchElementException e) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error",
+                        e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            }
+        });
+    }
+
+    public record JoinWaitlistRequest(
+            Long userId,
+            String fullName,
+            String email,
+            String phone,
+            String paymentMethod,
+            String cardLast4
+    ) {}
+
+    // Instead of retrying a taken slot: the first learner waiting gets it as a pending booking when it frees up
+    @PostMapping("/slots/{slotId}/waitlist")
+    public ResponseEntity<?> joinWaitlist(@PathVariable("slotId") Long slotId, @RequestBody JoinWaitlistRequest request) {
+        try {
+            return ResponseEntity.ok(waitlistService.join(slotId, request.userId(), request.email(), request.fullName(),
+                    request.phone(), request.paymentMethod(), request.cardLast4()));
+        } catch (IllegalArgumentException | IllegalStateException | java.util.NoSuchElementException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/waitlist/{entryId}")
+    public WaitlistService.Position waitlistPosition(@PathVariable("entryId") Long entryId) {
+        return waitlistService.position(entryId);
+    }
+
+    @DeleteMapping("/waitlist/{entryId}")
+    public void leaveWaitlist(@PathVariable("entryId") Long entryId) {
+        waitlistService.leave(entryId);
+    }
+
     @PostMapping("/bookings/{id}/cancel")
-    public Booking cancel(@PathVariable("id") Long id) {
-        return bookingService.cancelBooking(id);
+    public BookingRepository.BookingView cancel(@PathVariable("id") Long id) {
+        return bookingService.view(bookingService.cancelBooking(id));
     }
 
     @GetMapping("/bookings")
-    public List<Booking> all() {
-        return bookingService.allBookings();
+    public CursorPage<BookingRepository.BookingView> all(@RequestParam(required = false, name = "status") BookingStatus status,
+                                                         @RequestParam(required = false, name = "instructorId") Long instructorId,
+                                                         @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                         @RequestParam(required = false, name = "createdFrom") String createdFrom,
+                                                         @RequestParam(required = false, name = "createdTo") String createdTo,
+                                                         @RequestParam(required = false, name = "startFrom") String startFrom,
+                                                         @RequestParam(required = false, name = "startTo") String startTo,
+                                                         @RequestParam(required = false, name = "cursor") Long cursor,
+                                                         @RequestParam(required = false, name = "limit") Integer limit) {
+        BookingService.BookingFilter filter = new BookingService.BookingFilter(status, instructorId, schoolId,
+                CursorPage.parseDateTime(createdFrom), CursorPage.parseDateTime(createdTo),
+                CursorPage.parseDateTime(startFrom), CursorPage.parseDateTime(startTo));
+        return bookingService.listBookings(filter, cursor, limit);
     }
 
     @GetMapping("/users/{id}/bookings")
-    public List<Booking> userBookings(@PathVariable("id") Long id) {
+    public List<BookingRepository.BookingView> userBookings(@PathVariable("id") Long id) {
         return bookingService.bookingsForUser(id);
     }
 }
@@ -2,12 +2,14 @@ package com.example.drivingschool.controller;
 
 import com.example.drivingschool.model.*;
 import com.example.drivingschool.repository.*;
+import com.example.drivingschool.service.AvailabilityService;
+import com.example.drivingschool.service.BookingService;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/driver")
@@ -16,82 +18,101 @@ public class DriverController {
 
     private final InstructorRepository instructorRepository;
     private final BookingRepository bookingRepository;
-    private final DriverAvailabilityRepository driverAvailabilityRepository;
-    private final LessonSlotRepository slotRepository;
+    private final AvailabilityService availabilityService;
+    private final BookingService bookingService;
 
     public DriverController(InstructorRepository instructorRepository,
                            BookingRepository bookingRepository,
-                           DriverAvailabilityRepository driverAvailabilityRepository,
-                           LessonSlotRepository slotRepository) {
+                           AvailabilityService availabilityService,
+                           BookingService bookingService) {
         this.instructorRepository = instructorRepository;
         this.bookingRepository = bookingRepository;
-        this.driverAvailabilityRepository = driverAvailabilityRepository;
-        this.slotRepository = slotRepository;
+        this.availabilityService = availabilityService;
+        this.bookingService = bookingService;
     }
 
     @GetMapping("/{instructorId}/bookings")
-    public List<Booking> getBookings(@PathVariable("instructorId") Long instructorId) {
+    public List<BookingRepository.BookingView> getBookings(@PathVariable("instructorId") Long instructorId) {
         Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        List<LessonSlot> slots = slotRepository.findByInstructor(instructor);
-        return bookingRepository.findAll().stream()
-                .filter(b -> slots.contains(b.getSlot()))
-                .collect(Collectors.toList());
+        return bookingRepository.findForInstructor(instructor.getId());
     }
 
     @GetMapping("/{instructorId}/bookings/day/{date}")
-    public List<Booking> getBookingsByDay(@PathVariable("instructorId") Long instructorId, 
-                                          @PathVariable("date") String date) {
+    public List<BookingRepository.BookingView> getBookingsByDay(@PathVariable("instructorId") Long instructorId,
+                                                                @PathVariable("date") String date) {
         LocalDate day = LocalDate.parse(date);
         Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        return bookingRepository.findAll().stream()
-                .filter(b -> b.getSlot().getInstructor().equals(instructor))
-                .filter(b -> b.getSlot().getStartTime().toLocalDate().equals(day))
-                .collect(Collectors.toList());
+        return bookingRepository.findAgenda(instructor.getId(), day.atStartOfDay(), day.plusDays(1).atStartOfDay());
     }
 
-    @PostMapping("/bookings/{bookingId}/confirm")
-    public Booking confirmBooking(@PathVariable("bookingId") Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
-        booking.setStatus(BookingStatus.CONFIRMED);
-        booking.getSlot().setAvailable(false);
-        
-        // Update driver availability
-        LocalDate day = booking.getSlot().getStartTime().toLocalDate();
-        String timeSlot = booking.getSlot().getStartTime().toLocalTime().toString().substring(0, 5);
-        List<DriverAvailability> availabilities = driverAvailabilityRepository
-                .findByInstructorAndDayAndTimeSlot(booking.getSlot().getInstructor(), day, timeSlot);
-        for (DriverAvailability av : availabilities) {
-            av.setStatus("locked");
+    // Agenda for a day, week (Monday to Sunday) or month around the given date
+    @GetMapping("/{instructorId}/agenda")
+    public List<BookingRepository.BookingView> getAgenda(@PathVariable("instructorId") Long instructorId,
+                                                         @RequestParam(defaultValue = "week", name = "view") String view,
+                                                         @RequestParam(required = false, name = "date") String date,
+                                                         @RequestParam(defaultValue = "false", name = "upcoming") boolean upcoming,
+                                                         @RequestParam(required = false, name = "status") BookingStatus status) {
+        Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
+        LocalDate anchor = date != null ? LocalDate.parse(date) : LocalDate.now();
+        LocalDate start;
+        LocalDate end;
+        switch (view.toLowerCase()) {
+            case "day" -> {
+                start = anchor;
+                end = anchor.plusDays(1);
+            }
+            case "week" -> {
+                start = anchor.with(DayOfWeek.MONDAY);
+                end = start.plusWeeks(1);
+            }
+            case "month" -> {
+                start = anchor.withDayOfMonth(1);
+                end = start.plusMonths(1);
+            }
+            default -> throw new IllegalArgumentException("view must be day, week or month");
+        }
+        LocalDateTime from = start.atStartOfDay();
+        if (upcoming && from.isBefore(LocalDateTime.now())) {
+            from = LocalDateTime.now();
+        }
+        if (status == null) {
+            return bookingRepository.findAgenda(instructor.getId(), from, end.atStartOfDay());
         }
-        driverAvailabilityRepository.saveAll(availabilities);
-        
-        return bookingRepository.save(booking);
+        return bookingRepository.findAgendaWithStatus(instructor.getId(), from, end.atStartOfDay(), status);
+    }
+
+    // Booking, slot and calendar change in one transaction, with the booking row locked against hold expiry
+    @PostMapping("/bookings/{bookingId}/confirm")
+    public BookingRepository.BookingView confirmBooking(@PathVariable("bookingId") Long bookingId) {
+        bookingService.confirmBooking(bookingId);
+        return bookingRepository.findViewById(bookingId).orElseThrow();
     }
 
+    public record BulkBookingRequest(List<Long> bookingIds) {}
+
+    // Confirms or rejects a list of bookings in one transaction; ids that could not be changed come back under failed
+    @PostMapping("/bookings/confirm")
+    public BookingService.BulkResult confirmBookings(@RequestBody BulkBookingRequest req) {
+        return bookingService.confirmBookings(req.bookingIds());
+    }
+
+    @PostMapping("/bookings/reject")
+    public BookingService.BulkResult rejectBookings(@RequestBody BulkBookingRequest req) {
+        return bookingService.rejectBookings(req.bookingIds());
+    }
+
+    // Frees the slot, or hands it to the first learner on its waitlist, in one transaction
     @PostMapping("/bookings/{bookingId}/reject")
-    public Booking rejectBooking(@PathVariable("bookingId") Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
-        booking.setStatus(BookingStatus.CANCELLED);
-        booking.getSlot().setAvailable(true);
-        
-        // Update driver availability back to available
-        LocalDate day = booking.getSlot().getStartTime().toLocalDate();
-        String timeSlot = booking.getSlot().getStartTime().toLocalTime().toString().substring(0, 5);
-        List<DriverAvailability> availabilities = driverAvailabilityRepository
-                .findByInstructorAndDayAndTimeSlot(booking.getSlot().getInstructor(), day, timeSlot);
-        for (DriverAvailability av : availabilities) {
-            av.setStatus("available");
-        }
-        driverAvailabilityRepository.saveAll(availabilities);
-        
-        return bookingRepository.save(booking);
+    public BookingRepository.BookingView rejectBooking(@PathVariable("bookingId") Long bookingId) {
+        bookingService.rejectBooking(bookingId);
+        return bookingRepository.findViewById(bookingId).orElseThrow();
     }
 
     @GetMapping("/{instructorId}/calendar/{month}")
-    public List<DriverAvailability> getCalendar(@PathVariable("instructorId") Long instructorId,
-                                                @PathVariable("month") String month) {
+    public List<AvailabilityService.AvailabilitySlot> getCalendar(@PathVariable("instructorId") Long instructorId,
+                                                                  @PathVariable("month") String month) {
         Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        return driverAvailabilityRepository.findByInstructorAndMonth(instructor, month);
+        return availabilityService.calendar(instructor, month);
     }
 }
 
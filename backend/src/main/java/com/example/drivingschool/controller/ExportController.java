@@ -0,0 +1,89 @@
+package com.example.drivingschool.controller;
+
+import com.example.drivingschool.service.ExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/admin/export")
+@CrossOrigin
+public class ExportController {
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    private interface Export {
+        void write(ExportService.ExportFilter filter, ExportService.Format format, OutputStream out) throws IOException;
+    }
+
+    @GetMapping("/bookings")
+    public ResponseEntity<StreamingResponseBody> bookings(@RequestParam(defaultValue = "csv", name = "format") String format,
+                                                          @RequestParam(required = false, name = "from") String from, // YYYY-MM-DD
+                                                          @RequestParam(required = false, name = "to") String to, // YYYY-MM-DD
+                                                          @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                          @RequestParam(defaultValue = "false", name = "gzip") boolean gzip) {
+        return export("bookings", format, from, to, schoolId, gzip, exportService::exportBookings);
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<StreamingResponseBody> availability(@RequestParam(defaultValue = "csv", name = "format") String format,
+                                                              @RequestParam(required = false, name = "from") String from,
+                                                              @RequestParam(required = false, name = "to") String to,
+                                                              @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                              @RequestParam(defaultValue = "false", name = "gzip") boolean gzip) {
+        return export("availability", format, from, to, schoolId, gzip, exportService::exportAvailability);
+    }
+
+    @GetMapping("/reviews")
+    public ResponseEntity<StreamingResponseBody> reviews(@RequestParam(defaultValue = "csv", name = "format") String format,
+                                                         @RequestParam(required = false, name = "from") String from,
+                                                         @RequestParam(required = false, name = "to") String to,
+                                                         @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                         @RequestParam(defaultValue = "false", name = "gzip") boolean gzip) {
+        return export("reviews", format, from, to, schoolId, gzip, exportService::exportReviews);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, String format, String from, String to,
+                                                         Long schoolId, boolean gzip, Export writer) {
+        ExportService.Format exportFormat = ExportService.Format.valueOf(format.toUpperCase());
+        ExportService.ExportFilter filter = new ExportService.ExportFilter(
+                from != null ? LocalDate.parse(from) : null,
+                to != null ? LocalDate.parse(to) : null,
+                schoolId);
+        String extension = exportFormat == ExportService.Format.NDJSON ? "ndjson" : "csv";
+        MediaType mediaType;
+        if (gzip) {
+            // Served as a .gz download rather than Content-Encoding so clients keep the file compressed
+            mediaType = MediaType.parseMediaType("application/gzip");
+        } else if (exportFormat == ExportService.Format.NDJSON) {
+            mediaType = MediaType.parseMediaType("application/x-ndjson");
+        } else {
+            mediaType = MediaType.parseMediaType("text/csv");
+        }
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream zipped = new GZIPOutputStream(out, 8192);
+                writer.write(filter, exportFormat, zipped);
+                zipped.finish();
+            } else {
+                writer.write(filter, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + name + "." + extension + (gzip ? ".gz" : "") + "\"")
+                .body(body);
+    }
+}
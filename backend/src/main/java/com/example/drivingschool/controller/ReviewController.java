@@ -1,11 +1,8 @@
 package com.example.drivingschool.controller;
 
-import com.example.drivingschool.model.Review;
-import com.example.drivingschool.model.School;
-import com.example.drivingschool.model.User;
 import com.example.drivingschool.repository.ReviewRepository;
-import com.example.drivingschool.repository.SchoolRepository;
-import com.example.drivingschool.repository.UserRepository;
+import com.example.drivingschool.service.CursorPage;
+import com.example.drivingschool.service.ReviewService;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -18,39 +15,39 @@ import java.util.List;
 @RequestMapping("/api/reviews")
 @CrossOrigin
 public class ReviewController {
-    private final ReviewRepository reviewRepository;
-    private final SchoolRepository schoolRepository;
-    private final UserRepository userRepository;
-
-    public ReviewController(ReviewRepository reviewRepository, SchoolRepository schoolRepository, UserRepository userRepository) {
-        this.reviewRepository = reviewRepository;
-        this.schoolRepository = schoolRepository;
-        this.userRepository = userRepository;
+    private final ReviewService reviewService;
+
+    public ReviewController(ReviewService reviewService) {
+        this.reviewService = reviewService;
     }
 
     public record CreateReviewRequest(
             @NotNull Long schoolId,
             @NotNull Long userId,
             @Min(1) @Max(5) int rating,
-            @NotBlank String comment
+            @NotBlank String comment,
+            Long instructorId
     ) {}
 
     @GetMapping("/school/{id}")
-    public List<Review> bySchool(@PathVariable("id") Long id) {
-        School school = schoolRepository.findById(id).orElseThrow();
-        return reviewRepository.findBySchool(school);
+    public CursorPage<ReviewRepository.ReviewView> bySchool(@PathVariable("id") Long id,
+                                                          @RequestParam(defaultValue = "NEWEST", name = "sort") ReviewService.ReviewSort sort,
+                                                          @RequestParam(required = false, name = "cursor") Long cursor,
+                                                          @RequestParam(required = false, name = "limit") Integer limit) {
+        return reviewService.schoolReviews(id, sort, cursor, limit);
+    }
+
+    // Any word of q may match; best matches first
+    @GetMapping("/search")
+    public List<ReviewRepository.ReviewView> search(@RequestParam("q") String query,
+                                                    @RequestParam(required = false, name = "schoolId") Long schoolId,
+                                                    @RequestParam(required = false, name = "limit") Integer limit) {
+        return reviewService.searchReviews(query, schoolId, limit);
     }
 
     @PostMapping
-    public Review create(@RequestBody CreateReviewRequest request) {
-        School school = schoolRepository.findById(request.schoolId()).orElseThrow();
-        User user = userRepository.findById(request.userId()).orElseThrow();
-        Review review = new Review();
-        review.setSchool(school);
-        review.setReviewer(user);
-        review.setRating(request.rating());
-        review.setComment(request.comment());
-        return reviewRepository.save(review);
+    public ReviewRepository.ReviewView create(@RequestBody CreateReviewRequest request) {
+        return reviewService.createReview(request.schoolId(), request.userId(), request.instructorId(),
+                request.rating(), request.comment());
     }
 }
-
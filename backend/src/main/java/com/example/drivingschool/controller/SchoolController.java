@@ -1,12 +1,15 @@
 package com.example.drivingschool.controller;
 
-import com.example.drivingschool.model.Instructor;
 import com.example.drivingschool.model.School;
-import com.example.drivingschool.model.Review;
+import com.example.drivingschool.repository.InstructorRepository;
 import com.example.drivingschool.repository.ReviewRepository;
+import com.example.drivingschool.service.CursorPage;
+import com.example.drivingschool.service.ReviewService;
+import com.example.drivingschool.service.SchoolSearchIndex;
 import com.example.drivingschool.service.SchoolService;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -14,17 +17,48 @@ import java.util.List;
 @CrossOrigin
 public class SchoolController {
     private final SchoolService schoolService;
-    private final ReviewRepository reviewRepository;
+    private final ReviewService reviewService;
 
-    public SchoolController(SchoolService schoolService, ReviewRepository reviewRepository) {
+    public SchoolController(SchoolService schoolService, ReviewService reviewService) {
         this.schoolService = schoolService;
-        this.reviewRepository = reviewRepository;
+        this.reviewService = reviewService;
     }
 
+    // city and q combine; q matches name, city, address and description by prefix and tolerates typos
     @GetMapping
     public List<School> search(@RequestParam(required = false, name = "city") String city,
-                               @RequestParam(required = false, name = "q") String query) {
-        return schoolService.search(city, query);
+                               @RequestParam(required = false, name = "q") String query,
+                               @RequestParam(defaultValue = "RELEVANCE", name = "sort") SchoolSearchIndex.SortBy sort) {
+        return schoolService.search(city, query, sort);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<SchoolSearchIndex.Suggestion> autocomplete(@RequestParam("q") String query,
+                                                           @RequestParam(defaultValue = "10", name = "limit") int limit) {
+        return schoolService.autocomplete(query, limit);
+    }
+
+    // Schools within radiusKm of (lat, lon), nearest first
+    @GetMapping("/near")
+    public List<SchoolSearchIndex.NearbySchool> near(@RequestParam("lat") double lat,
+                                                     @RequestParam("lon") double lon,
+                                                     @RequestParam(defaultValue = "10", name = "radiusKm") double radiusKm,
+                                                     @RequestParam(required = false, name = "maxPrice") BigDecimal maxPrice,
+                                                     @RequestParam(required = false, name = "minRating") Double minRating,
+                                                     @RequestParam(defaultValue = "false", name = "freeThisWeek") boolean freeThisWeek,
+                                                     @RequestParam(defaultValue = "50", name = "limit") int limit) {
+        return schoolService.near(lat, lon, radiusKm, maxPrice, minRating, freeThisWeek, limit);
+    }
+
+    @GetMapping("/near/instructors")
+    public List<SchoolService.NearbyInstructor> nearInstructors(@RequestParam("lat") double lat,
+                                                                @RequestParam("lon") double lon,
+                                                                @RequestParam(defaultValue = "10", name = "radiusKm") double radiusKm,
+                                                                @RequestParam(required = false, name = "maxPrice") BigDecimal maxPrice,
+                                                                @RequestParam(required = false, name = "minRating") Double minRating,
+                                                                @RequestParam(defaultValue = "false", name = "freeThisWeek") boolean freeThisWeek,
+                                                                @RequestParam(defaultValue = "50", name = "limit") int limit) {
+        return schoolService.nearInstructors(lat, lon, radiusKm, maxPrice, minRating, freeThisWeek, limit);
     }
 
     @GetMapping("/{id}")
@@ -33,14 +67,23 @@ public class SchoolController {
     }
 
     @GetMapping("/{id}/instructors")
-    public List<Instructor> instructors(@PathVariable("id") Long id) {
+    public List<InstructorRepository.InstructorView> instructors(@PathVariable("id") Long id) {
         return schoolService.instructors(id);
     }
 
     @GetMapping("/{id}/reviews")
-    public List<Review> reviews(@PathVariable("id") Long id) {
-        School school = schoolService.get(id);
-        return reviewRepository.findBySchool(school);
+    public CursorPage<ReviewRepository.ReviewView> reviews(@PathVariable("id") Long id,
+                                                         @RequestParam(defaultValue = "NEWEST", name = "sort") ReviewService.ReviewSort sort,
+                                                         @RequestParam(required = false, name = "cursor") Long cursor,
+                                                         @RequestParam(required = false, name = "limit") Integer limit) {
+        return reviewService.schoolReviews(id, sort, cursor, limit);
+    }
+
+    @GetMapping("/{id}/reviews/search")
+    public List<ReviewRepository.ReviewView> searchReviews(@PathVariable("id") Long id,
+                                                           @RequestParam("q") String query,
+                                                           @RequestParam(required = false, name = "limit") Integer limit) {
+        return reviewService.searchReviews(query, id, limit);
     }
 }
 
@@ -0,0 +1,31 @@
+package com.example.drivingschool.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Entity
+@Table(name = "availability_month",
+        uniqueConstraints = @UniqueConstraint(name = "uk_availability_month_instructor_month",
+                columnNames = {"instructor_id", "availability_month"}))
+@Data
+public class AvailabilityMonth {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "availability_month_seq")
+    @SequenceGenerator(name = "availability_month_seq", sequenceName = "availability_month_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Instructor instructor;
+
+    @Column(name = "availability_month")
+    private String month; // Format: "2025-01"
+
+    @Column(name = "slot_states", length = 256)
+    private String slotStates; // Base64 of one int per day, see AvailabilityBitmap
+
+    @Embedded
+    private SlotCounts counts;
+
+    @Version
+    private Long version;
+}
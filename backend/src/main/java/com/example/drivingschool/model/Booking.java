@@ -6,16 +6,22 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_booking_status_hold", columnList = "status, holdExpiresAt"),
+        @Index(name = "idx_booking_status_id", columnList = "status, id"),
+        @Index(name = "idx_booking_created", columnList = "createdAt, id")
+})
 @Data
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User learner;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private LessonSlot slot;
 
     @Enumerated(EnumType.STRING)
@@ -23,6 +29,8 @@ public class Booking {
 
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    private LocalDateTime holdExpiresAt; // PENDING bookings give the slot back after this
+
     private String paymentMethod; // CASH or CARD (stored as uppercase string)
     private String cardLast4;     // last 4 digits if card was used
 }
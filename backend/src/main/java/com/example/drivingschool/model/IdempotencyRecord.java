@@ -0,0 +1,29 @@
+package com.example.drivingschool.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/** The response a booking endpoint gave for a client's Idempotency-Key, replayed on retries; PENDING until it answers. */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_record_created", columnList = "createdAt"))
+@Data
+public class IdempotencyRecord {
+    /** Status of a key whose first request is still running. */
+    public static final int PENDING = 0;
+
+    @Id
+    @Column(length = 200)
+    private String id; // endpoint + " " + client key
+
+    @Column(length = 64)
+    private String requestHash;
+
+    private int statusCode;
+
+    @Column(length = 1000000)
+    private String responseBody;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
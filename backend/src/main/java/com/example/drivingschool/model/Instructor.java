@@ -7,14 +7,18 @@ import lombok.Data;
 @Data
 public class Instructor {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "instructor_seq")
+    @SequenceGenerator(name = "instructor_seq", sequenceName = "instructor_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private String bio;
-    private Double rating;
+    private Double rating; // live review average once the instructor has reviews
 
-    @ManyToOne
+    @Embedded
+    private RatingStats ratingStats = new RatingStats();
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private School school;
 }
 
@@ -7,10 +7,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_lesson_slot_instructor_start",
+        columnNames = {"instructor_id", "startTime"}))
 @Data
 public class LessonSlot {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lesson_slot_seq")
+    @SequenceGenerator(name = "lesson_slot_seq", sequenceName = "lesson_slot_seq", allocationSize = 50)
     private Long id;
 
     private LocalDateTime startTime;
@@ -21,7 +24,10 @@ public class LessonSlot {
 
     private boolean available = true;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Instructor instructor;
+
+    @Version
+    private Long version;
 }
 
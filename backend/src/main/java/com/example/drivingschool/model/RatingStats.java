@@ -0,0 +1,38 @@
+package com.example.drivingschool.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Data;
+
+/**
+ * Running review totals and star histogram. Only RatingAggregateService writes these columns,
+ * with in-place increments, so entity saves never overwrite them with a stale copy.
+ */
+@Embeddable
+@Data
+public class RatingStats {
+    @Column(name = "review_count", nullable = false, insertable = false, updatable = false)
+    private long count;
+
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    private long sum;
+
+    @Column(name = "stars_1", nullable = false, insertable = false, updatable = false)
+    private long stars1;
+
+    @Column(name = "stars_2", nullable = false, insertable = false, updatable = false)
+    private long stars2;
+
+    @Column(name = "stars_3", nullable = false, insertable = false, updatable = false)
+    private long stars3;
+
+    @Column(name = "stars_4", nullable = false, insertable = false, updatable = false)
+    private long stars4;
+
+    @Column(name = "stars_5", nullable = false, insertable = false, updatable = false)
+    private long stars5;
+
+    public Double getAverage() {
+        return count > 0 ? (double) sum / count : null;
+    }
+}
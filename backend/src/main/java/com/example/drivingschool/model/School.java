@@ -9,7 +9,8 @@ import java.math.BigDecimal;
 @Data
 public class School {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "school_seq")
+    @SequenceGenerator(name = "school_seq", sequenceName = "school_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -18,11 +19,17 @@ public class School {
     private String address;
     private String contactPhone;
 
-    private Double rating;
+    private Double rating; // live review average once the school has reviews
+
+    @Embedded
+    private RatingStats ratingStats = new RatingStats();
 
     @Column(precision = 10, scale = 2)
     private BigDecimal pricePerLesson;
 
     private Integer defaultLessonMinutes;
+
+    private Double latitude;
+    private Double longitude;
 }
 
@@ -0,0 +1,28 @@
+package com.example.drivingschool.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Data;
+
+/**
+ * How many slots of an availability month are in each state, days off left out, and how many
+ * days are off. Rewritten with the bitmap on every save; null on months not summarized yet.
+ */
+@Embeddable
+@Data
+public class SlotCounts {
+    @Column(name = "available_slots")
+    private Integer available;
+
+    @Column(name = "booked_slots")
+    private Integer booked;
+
+    @Column(name = "locked_slots")
+    private Integer locked;
+
+    @Column(name = "unavailable_slots")
+    private Integer unavailable;
+
+    @Column(name = "days_off")
+    private Integer daysOff;
+}
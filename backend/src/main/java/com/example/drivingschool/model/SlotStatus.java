@@ -0,0 +1,19 @@
+package com.example.drivingschool.model;
+
+public enum SlotStatus {
+    AVAILABLE("available"),
+    BOOKED("booked"),
+    LOCKED("locked"),
+    UNAVAILABLE("unavailable");
+
+    private final String value;
+
+    SlotStatus(String value) {
+        this.value = value;
+    }
+
+    // Lowercase form the calendar API has always exposed
+    public String value() {
+        return value;
+    }
+}
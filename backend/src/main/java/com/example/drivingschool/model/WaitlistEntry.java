@@ -0,0 +1,30 @@
+package com.example.drivingschool.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/** A learner waiting for a booked lesson slot; the oldest entry is booked when the slot frees up. */
+@Entity
+@Table(name = "waitlist_entry",
+        uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_entry_slot_learner", columnNames = {"slot_id", "learner_id"}),
+        indexes = @Index(name = "idx_waitlist_entry_slot_created", columnList = "slot_id, createdAt, id"))
+@Data
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "waitlist_entry_seq")
+    @SequenceGenerator(name = "waitlist_entry_seq", sequenceName = "waitlist_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private LessonSlot slot;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User learner;
+
+    private String paymentMethod; // carried over to the booking on promotion
+    private String cardLast4;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
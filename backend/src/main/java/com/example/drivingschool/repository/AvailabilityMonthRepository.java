@@ -0,0 +1,47 @@
+package com.example.drivingschool.repository;
+
+import com.example.drivingschool.model.AvailabilityMonth;
+import com.example.drivingschool.model.Instructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AvailabilityMonthRepository extends JpaRepository<AvailabilityMonth, Long> {
+    Optional<AvailabilityMonth> findByInstructorAndMonth(Instructor instructor, String month);
+    List<AvailabilityMonth> findByInstructorOrderByMonth(Instructor instructor);
+    List<AvailabilityMonth> findByInstructorInAndMonthBetweenOrderByMonth(Collection<Instructor> instructors,
+                                                                          String fromMonth,
+                                                                          String toMonth);
+    // Superset of the (instructor, month) pairs a batch touches; callers pick theirs out
+    List<AvailabilityMonth> findByInstructorIdInAndMonthIn(Collection<Long> instructorIds, Collection<String> months);
+
+    interface SummaryView {
+        String getMonth();
+        Integer getAvailable();
+        Integer getBooked();
+        Integer getLocked();
+        Integer getUnavailable();
+        Integer getDaysOff();
+        String getSlotStates();
+    }
+
+    // Bitmaps are only decoded for months saved before the counts existed
+    @Query("select m.month as month, m.counts.available as available, m.counts.booked as booked, " +
+           "m.counts.locked as locked, m.counts.unavailable as unavailable, m.counts.daysOff as daysOff, " +
+           "case when m.counts.available is null then m.slotStates end as slotStates " +
+           "from AvailabilityMonth m where m.instructor.id = :instructorId order by m.month")
+    List<SummaryView> findSummariesByInstructorId(@Param("instructorId") Long instructorId);
+
+    @Query("select m from AvailabilityMonth m where m.counts.available is null order by m.id")
+    List<AvailabilityMonth> findUnsummarized(Pageable pageable);
+
+    @Modifying
+    @Query("delete from AvailabilityMonth m where m.instructor.id in :instructorIds")
+    int deleteByInstructorIds(@Param("instructorIds") Collection<Long> instructorIds);
+}
@@ -4,14 +4,120 @@ import com.example.drivingschool.model.Booking;
 import com.example.drivingschool.model.BookingStatus;
 import com.example.drivingschool.model.LessonSlot;
 import com.example.drivingschool.model.User;
+import jakarta.persistence.LockModeType;
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, JpaSpecificationExecutor<Booking> {
     List<Booking> findByLearner(User learner);
     List<Booking> findByStatus(BookingStatus status);
     List<Booking> findBySlot(LessonSlot slot);
-    void deleteBySlot(LessonSlot slot);
+
+    // Set-based cascade deletes, see CascadeDeleteService
+    @Modifying
+    @Query("delete from Booking b where b.slot.id in " +
+           "(select s.id from LessonSlot s where s.instructor.id in :instructorIds)")
+    int deleteByInstructorIds(@Param("instructorIds") Collection<Long> instructorIds);
+
+    @Query("select b.id from Booking b where b.slot.instructor.id = :instructorId")
+    List<Long> findIdsByInstructorId(@Param("instructorId") Long instructorId, Pageable pageable);
+
+    interface HoldView {
+        Long getId();
+        LocalDateTime getHoldExpiresAt();
+    }
+
+    /**
+     * What booking endpoints return: the lesson flattened in, and only the learner's name. A plain
+     * class built by the query rather than an interface projection, so Jackson reads its getters
+     * directly instead of going through a proxy per property.
+     */
+    @Value
+    class BookingView {
+        Long id;
+        BookingStatus status;
+        LocalDateTime createdAt;
+        LocalDateTime holdExpiresAt;
+        String paymentMethod;
+        String cardLast4;
+        Long slotId;
+        LocalDateTime startTime;
+        Integer durationMinutes;
+        BigDecimal price;
+        Long instructorId;
+        String instructorName;
+        Long schoolId;
+        String schoolName;
+        Long learnerId;
+        String learnerName;
+    }
+
+    String VIEW_SELECT = "select new com.example.drivingschool.repository.BookingRepository$BookingView(" +
+            "b.id, b.status, b.createdAt, b.holdExpiresAt, b.paymentMethod, b.cardLast4, " +
+            "s.id, s.startTime, s.durationMinutes, s.price, i.id, i.name, sc.id, sc.name, l.id, l.fullName) " +
+            "from Booking b left join b.slot s left join s.instructor i left join i.school sc left join b.learner l ";
+
+    // Confirm and reject update the booked lesson too
+    @EntityGraph(attributePaths = "slot")
+    Optional<Booking> findWithSlotById(Long id);
+
+    // Bulk confirm/reject; locked so a hold expiring at the same moment waits for the outcome
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Booking b join fetch b.slot where b.id in :ids order by b.id")
+    List<Booking> lockWithSlotByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(VIEW_SELECT + "where b.id = :id")
+    Optional<BookingView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW_SELECT + "where b.id in :ids order by b.id desc")
+    List<BookingView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(VIEW_SELECT + "where l.id = :learnerId order by s.startTime")
+    List<BookingView> findViewsByLearnerId(@Param("learnerId") Long learnerId);
+
+    // Driver dashboard: one indexed query over the instructor's own slots
+    @Query(VIEW_SELECT + "where i.id = :instructorId order by s.startTime")
+    List<BookingView> findForInstructor(@Param("instructorId") Long instructorId);
+
+    @Query(VIEW_SELECT + "where i.id = :instructorId and s.startTime >= :from and s.startTime < :to " +
+           "order by s.startTime")
+    List<BookingView> findAgenda(@Param("instructorId") Long instructorId,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+
+    // A separate query rather than ":status is null or ...", which PostgreSQL cannot type for an enum
+    @Query(VIEW_SELECT + "where i.id = :instructorId and s.startTime >= :from and s.startTime < :to " +
+           "and b.status = :status order by s.startTime")
+    List<BookingView> findAgendaWithStatus(@Param("instructorId") Long instructorId,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to,
+                                           @Param("status") BookingStatus status);
+
+    List<HoldView> findByStatusAndHoldExpiresAtIsNotNull(BookingStatus status);
+    @EntityGraph(attributePaths = "slot")
+    List<Booking> findByIdInAndStatusAndHoldExpiresAtLessThanEqual(Collection<Long> ids,
+                                                                  BookingStatus status,
+                                                                  LocalDateTime now);
+
+    // Cancels a hold only if nobody confirmed or rejected it in the meantime
+    @Modifying
+    @Query("update Booking b set b.status = com.example.drivingschool.model.BookingStatus.CANCELLED, " +
+           "b.holdExpiresAt = null " +
+           "where b.id = :id and b.status = com.example.drivingschool.model.BookingStatus.PENDING " +
+           "and b.holdExpiresAt <= :now")
+    int expireHold(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
 
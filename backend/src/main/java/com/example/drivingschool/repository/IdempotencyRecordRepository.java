@@ -0,0 +1,51 @@
+package com.example.drivingschool.repository;
+
+import com.example.drivingschool.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+    // A plain insert, unlike save(), fails on an existing key instead of merging into it
+    @Transactional
+    @Modifying
+    @Query(value = "insert into idempotency_record (id, request_hash, status_code, created_at) "
+            + "values (:id, :requestHash, " + IdempotencyRecord.PENDING + ", :createdAt)", nativeQuery = true)
+    int claim(@Param("id") String id, @Param("requestHash") String requestHash,
+              @Param("createdAt") LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.statusCode = :statusCode, r.responseBody = :responseBody "
+            + "where r.id = :id and r.createdAt = :claimedAt and r.statusCode = " + IdempotencyRecord.PENDING)
+    int complete(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("statusCode") int statusCode, @Param("responseBody") String responseBody);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.createdAt = :claimedAt and r.statusCode = "
+            + IdempotencyRecord.PENDING)
+    int release(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt);
+
+    // Matches the claim it read, so only one retry takes an abandoned key over
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.createdAt = :claimedAt "
+            + "where r.id = :id and r.createdAt = :staleClaim and r.statusCode = " + IdempotencyRecord.PENDING)
+    int takeOver(@Param("id") String id, @Param("staleClaim") LocalDateTime staleClaim,
+                 @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.createdAt < :before")
+    int deleteIfCreatedBefore(@Param("id") String id, @Param("before") LocalDateTime before);
+}
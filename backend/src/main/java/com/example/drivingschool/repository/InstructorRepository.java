@@ -2,11 +2,50 @@ package com.example.drivingschool.repository;
 
 import com.example.drivingschool.model.Instructor;
 import com.example.drivingschool.model.School;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface InstructorRepository extends JpaRepository<Instructor, Long> {
     List<Instructor> findBySchool(School school);
+
+    /** An instructor as listed on a school page, without the school repeated in every row. */
+    interface InstructorView {
+        Long getId();
+        String getName();
+        String getBio();
+        Double getRating();
+        long getReviewCount();
+        Long getSchoolId();
+    }
+
+    @Query("select i.id as id, i.name as name, i.bio as bio, i.rating as rating, " +
+           "i.ratingStats.count as reviewCount, i.school.id as schoolId " +
+           "from Instructor i where i.school.id = :schoolId order by i.id")
+    List<InstructorView> findViewsBySchoolId(@Param("schoolId") Long schoolId);
+
+    // Callers read the school's name and city, so it comes in the same select
+    @EntityGraph(attributePaths = "school")
+    List<Instructor> findBySchoolCityIgnoreCase(String city);
+
+    @EntityGraph(attributePaths = "school")
+    List<Instructor> findBySchoolIdIn(Collection<Long> schoolIds);
+
+    @EntityGraph(attributePaths = "school")
+    List<Instructor> findByIdIn(Collection<Long> ids);
+
+    @Query("select i from Instructor i left join fetch i.school")
+    List<Instructor> findAllWithSchool();
+
+    @Query("select i.id from Instructor i where i.school.id = :schoolId")
+    List<Long> findIdsBySchoolId(@Param("schoolId") Long schoolId);
+
+    @Query("select i.school.id from Instructor i where i.id = :id")
+    Optional<Long> findSchoolIdById(@Param("id") Long id);
 }
 
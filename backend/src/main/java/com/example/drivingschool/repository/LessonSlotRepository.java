@@ -2,15 +2,76 @@ package com.example.drivingschool.repository;
 
 import com.example.drivingschool.model.Instructor;
 import com.example.drivingschool.model.LessonSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface LessonSlotRepository extends JpaRepository<LessonSlot, Long> {
     List<LessonSlot> findByInstructorAndStartTimeAfter(Instructor instructor, LocalDateTime start);
+
+    interface SlotView {
+        Long getId();
+        LocalDateTime getStartTime();
+        Integer getDurationMinutes();
+        BigDecimal getPrice();
+        boolean isAvailable();
+        Long getInstructorId();
+    }
+
+    String VIEW_SELECT = "select s.id as id, s.startTime as startTime, s.durationMinutes as durationMinutes, " +
+            "s.price as price, s.available as available, s.instructor.id as instructorId from LessonSlot s ";
+
+    @Query(VIEW_SELECT + "where s.id = :id")
+    Optional<SlotView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW_SELECT + "where s.instructor.id = :instructorId and s.startTime > :start order by s.startTime")
+    List<SlotView> findViewsByInstructorIdAndStartTimeAfter(@Param("instructorId") Long instructorId,
+                                                             @Param("start") LocalDateTime start);
     List<LessonSlot> findByInstructor(Instructor instructor);
     Optional<LessonSlot> findByInstructorAndStartTime(Instructor instructor, LocalDateTime startTime);
+    Slice<LessonSlot> findByInstructorInAndAvailableTrueAndStartTimeBetween(Collection<Instructor> instructors,
+                                                                           LocalDateTime from,
+                                                                           LocalDateTime to,
+                                                                           Pageable pageable);
+
+    @Query("select distinct s.instructor.id from LessonSlot s where s.instructor in :instructors " +
+           "and s.available = true and s.startTime between :from and :to")
+    List<Long> findInstructorIdsWithFreeSlot(@Param("instructors") Collection<Instructor> instructors,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to);
+
+    // Batch booking locks every slot it may take up front, in id order so concurrent batches cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from LessonSlot s where s.id in :ids order by s.id")
+    List<LessonSlot> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from LessonSlot s where s.instructor.id in :instructorIds and s.startTime in :startTimes order by s.id")
+    List<LessonSlot> lockByInstructorIdInAndStartTimeIn(@Param("instructorIds") Collection<Long> instructorIds,
+                                                        @Param("startTimes") Collection<LocalDateTime> startTimes);
+
+    // Atomically takes a free slot; returns 0 when another booking got there first
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update LessonSlot s set s.available = false, s.version = coalesce(s.version, 0) + 1 " +
+           "where s.id = :id and s.available = true")
+    int claim(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from LessonSlot s where s.instructor.id in :instructorIds")
+    int deleteByInstructorIds(@Param("instructorIds") Collection<Long> instructorIds);
+
+    @Query("select s.id from LessonSlot s where s.instructor.id = :instructorId")
+    List<Long> findIdsByInstructorId(@Param("instructorId") Long instructorId, Pageable pageable);
 }
 
@@ -3,10 +3,77 @@ package com.example.drivingschool.repository;
 import com.example.drivingschool.model.Review;
 import com.example.drivingschool.model.School;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, JpaSpecificationExecutor<Review> {
     List<Review> findBySchool(School school);
+
+    /** What the public review feed shows: no reviewer account details and no nested school. */
+    interface ReviewView {
+        Long getId();
+        int getRating();
+        String getComment();
+        LocalDateTime getCreatedAt();
+        Long getSchoolId();
+        String getReviewerName();
+        Long getInstructorId();
+        String getInstructorName();
+    }
+
+    interface ReviewText {
+        Long getId();
+        Long getSchoolId();
+        String getComment();
+    }
+
+    String VIEW_SELECT = "select r.id as id, r.rating as rating, r.comment as comment, r.createdAt as createdAt, " +
+            "r.school.id as schoolId, u.fullName as reviewerName, i.id as instructorId, i.name as instructorName " +
+            "from Review r left join r.reviewer u left join r.instructor i ";
+
+    // Keyset pages per sort order; the cursor is the id of the last review on the previous page
+    @Query(VIEW_SELECT + "where r.school.id = :schoolId and (:cursor is null or r.id < :cursor) order by r.id desc")
+    List<ReviewView> findNewest(@Param("schoolId") Long schoolId, @Param("cursor") Long cursor, Pageable pageable);
+
+    @Query(VIEW_SELECT + "where r.school.id = :schoolId and (:cursor is null or r.rating < :rating " +
+           "or (r.rating = :rating and r.id < :cursor)) order by r.rating desc, r.id desc")
+    List<ReviewView> findHighest(@Param("schoolId") Long schoolId, @Param("cursor") Long cursor,
+                                 @Param("rating") Integer rating, Pageable pageable);
+
+    @Query(VIEW_SELECT + "where r.school.id = :schoolId and (:cursor is null or r.rating > :rating " +
+           "or (r.rating = :rating and r.id < :cursor)) order by r.rating asc, r.id desc")
+    List<ReviewView> findLowest(@Param("schoolId") Long schoolId, @Param("cursor") Long cursor,
+                                @Param("rating") Integer rating, Pageable pageable);
+
+    @Query(VIEW_SELECT + "where r.id in :ids order by r.id desc")
+    List<ReviewView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select r.rating from Review r where r.id = :id")
+    Optional<Integer> findRatingById(@Param("id") Long id);
+
+    // Feeds the comment index at startup, a chunk at a time
+    @Query("select r.id as id, r.school.id as schoolId, r.comment as comment from Review r " +
+           "where r.id > :after order by r.id")
+    List<ReviewText> findTextsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Review r where r.school.id = :schoolId")
+    int deleteBySchoolId(@Param("schoolId") Long schoolId);
+
+    // Reviews outlive a deleted instructor as plain school reviews
+    @Modifying
+    @Query("update Review r set r.instructor = null where r.instructor.id in :instructorIds")
+    int detachInstructors(@Param("instructorIds") Collection<Long> instructorIds);
+
+    @Query("select r.id from Review r where r.school.id = :schoolId")
+    List<Long> findIdsBySchoolId(@Param("schoolId") Long schoolId, Pageable pageable);
 }
 
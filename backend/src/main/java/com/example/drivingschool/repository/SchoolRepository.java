@@ -1,12 +1,22 @@
 package com.example.drivingschool.repository;
 
 import com.example.drivingschool.model.School;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface SchoolRepository extends JpaRepository<School, Long> {
     List<School> findByCityIgnoreCase(String city);
     List<School> findByNameContainingIgnoreCase(String name);
+
+    // Holds off RatingAggregateService's in-place updates while an edit rewrites the row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from School s where s.id = :id")
+    Optional<School> lockById(@Param("id") Long id);
 }
 
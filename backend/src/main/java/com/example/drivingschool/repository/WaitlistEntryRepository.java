@@ -0,0 +1,54 @@
+package com.example.drivingschool.repository;
+
+import com.example.drivingschool.model.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+    interface QueuedView {
+        Long getId();
+        Long getSlotId();
+    }
+
+    // Every waitlist in queue order, to rebuild the in-memory queues on startup
+    @Query("select w.id as id, w.slot.id as slotId from WaitlistEntry w order by w.createdAt, w.id")
+    List<QueuedView> findAllQueued();
+
+    @Query("select w.id as id, w.slot.id as slotId from WaitlistEntry w where w.id = :id")
+    Optional<QueuedView> findQueuedById(@Param("id") Long id);
+
+    Optional<WaitlistEntry> findBySlotIdAndLearnerId(Long slotId, Long learnerId);
+
+    // Entries queued before this one, in the same order as findAllQueued
+    @Query("select count(w) from WaitlistEntry w where w.slot.id = :slotId " +
+           "and (w.createdAt < :createdAt or (w.createdAt = :createdAt and w.id < :id))")
+    long countAhead(@Param("slotId") Long slotId, @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id);
+
+    @Query("select distinct w.slot.id from WaitlistEntry w where w.slot.startTime < :before")
+    List<Long> findSlotIdsStartingBefore(@Param("before") LocalDateTime before);
+
+    @Query("select distinct w.slot.id from WaitlistEntry w where w.slot.instructor.id in :instructorIds")
+    List<Long> findSlotIdsByInstructorIds(@Param("instructorIds") Collection<Long> instructorIds);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.slot.id = :slotId")
+    int deleteBySlotId(@Param("slotId") Long slotId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.slot.id in :slotIds")
+    int deleteBySlotIdIn(@Param("slotIds") Collection<Long> slotIds);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.slot.id in " +
+           "(select s.id from LessonSlot s where s.instructor.id in :instructorIds)")
+    int deleteByInstructorIds(@Param("instructorIds") Collection<Long> instructorIds);
+}
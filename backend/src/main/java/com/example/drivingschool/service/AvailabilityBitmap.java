@@ -0,0 +1,118 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.SlotCounts;
+import com.example.drivingschool.model.SlotStatus;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Slot states for one instructor-month packed into one int per day.
+ * Each of the 10 daily time slots takes 3 bits (0 = not open, otherwise SlotStatus ordinal + 1)
+ * and the sign bit marks the whole day as unavailable.
+ */
+public final class AvailabilityBitmap {
+    public static final int SLOTS_PER_DAY = 10;
+
+    private static final int BITS_PER_SLOT = 3;
+    private static final int SLOT_MASK = 0b111;
+    private static final int DAY_OFF_BIT = 1 << 31;
+    private static final SlotStatus[] STATUSES = SlotStatus.values();
+
+    private final int[] days;
+
+    public AvailabilityBitmap(int daysInMonth) {
+        this.days = new int[daysInMonth];
+    }
+
+    private AvailabilityBitmap(int[] days) {
+        this.days = days;
+    }
+
+    public static AvailabilityBitmap decode(String encoded, int daysInMonth) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new AvailabilityBitmap(daysInMonth);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+        int[] days = new int[daysInMonth];
+        for (int i = 0; i < daysInMonth && buffer.remaining() >= Integer.BYTES; i++) {
+            days[i] = buffer.getInt();
+        }
+        return new AvailabilityBitmap(days);
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(days.length * Integer.BYTES);
+        for (int day : days) {
+            buffer.putInt(day);
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    public int lengthOfMonth() {
+        return days.length;
+    }
+
+    /** Returns the slot state, or null when the slot was never opened. Days are 1-based. */
+    public SlotStatus get(int day, int slot) {
+        int code = (days[day - 1] >>> (slot * BITS_PER_SLOT)) & SLOT_MASK;
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    public void set(int day, int slot, SlotStatus status) {
+        int shift = slot * BITS_PER_SLOT;
+        int code = status == null ? 0 : status.ordinal() + 1;
+        days[day - 1] = (days[day - 1] & ~(SLOT_MASK << shift)) | (code << shift);
+    }
+
+    public boolean isDayOff(int day) {
+        return (days[day - 1] & DAY_OFF_BIT) != 0;
+    }
+
+    /** Marking a day off drops its individual slots, like deleting the day's rows did before. */
+    public void setDayOff(int day, boolean off) {
+        days[day - 1] = off ? DAY_OFF_BIT : days[day - 1] & ~DAY_OFF_BIT;
+    }
+
+    public SlotCounts counts() {
+        int[] byStatus = new int[STATUSES.length];
+        int daysOff = 0;
+        for (int day : days) {
+            if ((day & DAY_OFF_BIT) != 0) {
+                daysOff++;
+                continue;
+            }
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                int code = (day >>> (slot * BITS_PER_SLOT)) & SLOT_MASK;
+                if (code != 0) {
+                    byStatus[code - 1]++;
+                }
+            }
+        }
+        SlotCounts counts = new SlotCounts();
+        counts.setAvailable(byStatus[SlotStatus.AVAILABLE.ordinal()]);
+        counts.setBooked(byStatus[SlotStatus.BOOKED.ordinal()]);
+        counts.setLocked(byStatus[SlotStatus.LOCKED.ordinal()]);
+        counts.setUnavailable(byStatus[SlotStatus.UNAVAILABLE.ordinal()]);
+        counts.setDaysOff(daysOff);
+        return counts;
+    }
+
+    public boolean hasOpenSlots() {
+        for (int day : days) {
+            if ((day & ~DAY_OFF_BIT) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        for (int day : days) {
+            if (day != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.AvailabilityMonth;
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.SlotCounts;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.repository.AvailabilityMonthRepository;
+import com.example.drivingschool.repository.InstructorRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+@Service
+public class AvailabilityService {
+    public static final List<String> TIME_SLOTS = List.of(
+            "08:00", "09:00", "10:00", "11:00", "12:00", "13:00", "14:00", "15:00", "16:00", "17:00");
+
+    // Same JSON shape the calendar endpoints returned when every slot was its own row
+    public record AvailabilitySlot(String month,
+                                   LocalDate day,
+                                   String timeSlot,
+                                   String status,
+                                   boolean unavailableDay) {}
+
+    public record SlotRef(Long instructorId, LocalDate date, String timeSlot) {}
+
+    // Slot counts of one month, for month lists and dashboard heatmaps
+    public record MonthSummary(String month,
+                               int available,
+                               int booked,
+                               int locked,
+                               int unavailable,
+                               int daysOff) {}
+
+    public static final int MAX_RANGE_DAYS = 366;
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityService.class);
+
+    private final AvailabilityMonthRepository availabilityMonthRepository;
+    private final InstructorRepository instructorRepository;
+    private final AvailabilityStream availabilityStream;
+    private final OptimisticRetry optimisticRetry;
+    private final EntityManager entityManager;
+
+    public AvailabilityService(AvailabilityMonthRepository availabilityMonthRepository,
+                               InstructorRepository instructorRepository,
+                               AvailabilityStream availabilityStream,
+                               OptimisticRetry optimisticRetry,
+                               EntityManager entityManager) {
+        this.availabilityMonthRepository = availabilityMonthRepository;
+        this.instructorRepository = instructorRepository;
+        this.availabilityStream = availabilityStream;
+        this.optimisticRetry = optimisticRetry;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Fills in the counts of months last saved before they were kept, a few hundred per transaction.
+     * A chunk that keeps losing to concurrent bookings ends the pass; monthSummaries decodes the
+     * months left over until they are next saved.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void summarizeMonths() {
+        int summarized;
+        do {
+            try {
+                // On a retry the months a booking rewrote meanwhile have their counts and drop out of the chunk
+                summarized = optimisticRetry.execute(() -> {
+                    List<AvailabilityMonth> records = availabilityMonthRepository.findUnsummarized(PageRequest.of(0, 200));
+                    records.forEach(record -> record.setCounts(bitmapOf(record).counts()));
+                    return records.size();
+                });
+            } catch (IllegalStateException e) {
+                log.warn("Summarizing availability months stopped early, the rest are summarized as they are saved: {}",
+                        e.getMessage());
+                return;
+            }
+        } while (summarized > 0);
+    }
+
+    /** Opens every future time slot of the month; returns false if the month already has open slots. */
+    @Transactional
+    public boolean enableMonth(Instructor instructor, String month) {
+        YearMonth yearMonth = YearMonth.parse(month);
+        AvailabilityMonth record = findOrCreate(instructor, yearMonth);
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        if (bitmap.hasOpenSlots()) {
+            return false;
+        }
+        LocalDate today = LocalDate.now();
+        for (int day = 1; day <= bitmap.lengthOfMonth(); day++) {
+            // Skip past dates and days off
+            if (yearMonth.atDay(day).isBefore(today) || bitmap.isDayOff(day)) {
+                continue;
+            }
+            for (int slot = 0; slot < AvailabilityBitmap.SLOTS_PER_DAY; slot++) {
+                bitmap.set(day, slot, SlotStatus.AVAILABLE);
+            }
+        }
+        store(record, bitmap);
+        return true;
+    }
+
+    @Transactional
+    public void disableMonth(Instructor instructor, String month) {
+        availabilityMonthRepository.findByInstructorAndMonth(instructor, YearMonth.parse(month).toString())
+                .ifPresent(record -> {
+                    availabilityMonthRepository.delete(record);
+                    int days = YearMonth.parse(record.getMonth()).lengthOfMonth();
+                    announce(record, record.getSlotStates(), new AvailabilityBitmap(days));
+                });
+    }
+
+    @Transactional
+    public void setUnavailableDay(Instructor instructor, LocalDate date) {
+        AvailabilityMonth record = findOrCreate(instructor, YearMonth.from(date));
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        bitmap.setDayOff(date.getDayOfMonth(), true);
+        store(record, bitmap);
+    }
+
+    /** Sets the slot state, opening the slot if it was never enabled. */
+    @Transactional
+    public void setSlotStatus(Instructor instructor, LocalDate date, String timeSlot, SlotStatus status) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown time slot: " + timeSlot);
+        }
+        AvailabilityMonth record = findOrCreate(instructor, YearMonth.from(date));
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        bitmap.set(date.getDayOfMonth(), slot, status);
+        store(record, bitmap);
+    }
+
+    /** Changes the state of an already open slot; returns false when there is nothing to update. */
+    @Transactional
+    public boolean updateSlotStatus(Instructor instructor, LocalDate date, String timeSlot, SlotStatus status) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            return false;
+        }
+        AvailabilityMonth record = availabilityMonthRepository
+                .findByInstructorAndMonth(instructor, YearMonth.from(date).toString())
+                .orElse(null);
+        if (record == null) {
+            return false;
+        }
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        if (bitmap.get(date.getDayOfMonth(), slot) == null) {
+            return false;
+        }
+        bitmap.set(date.getDayOfMonth(), slot, status);
+        store(record, bitmap);
+        return true;
+    }
+
+    /**
+     * Moves a slot from one state to another only if it is currently in the expected state.
+     * Transitions in the same month take turns on the month row; other writers are still caught
+     * by its version column.
+     */
+    @Transactional
+    public boolean transition(Instructor instructor, LocalDate date, String timeSlot, SlotStatus expected, SlotStatus next) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            return false;
+        }
+        AvailabilityMonth record = availabilityMonthRepository
+                .findByInstructorAndMonth(instructor, YearMonth.from(date).toString())
+                .orElse(null);
+        if (record == null) {
+            return false;
+        }
+        // Re-read under a row lock, so bookings of other times in the month wait here rather than
+        // fail the version check at commit
+        entityManager.refresh(record, LockModeType.PESSIMISTIC_WRITE);
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        int day = date.getDayOfMonth();
+        if (bitmap.isDayOff(day) || bitmap.get(day, slot) != expected) {
+            return false;
+        }
+        bitmap.set(day, slot, next);
+        store(record, bitmap);
+        return true;
+    }
+
+    /** Returns the slot state, UNAVAILABLE for a day off, or null when the slot is not open. */
+    @Transactional(readOnly = true)
+    public SlotStatus status(Instructor instructor, LocalDate date, String timeSlot) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            return null;
+        }
+        return availabilityMonthRepository.findByInstructorAndMonth(instructor, YearMonth.from(date).toString())
+                .map(record -> {
+                    AvailabilityBitmap bitmap = bitmapOf(record);
+                    if (bitmap.isDayOff(date.getDayOfMonth())) {
+                        return SlotStatus.UNAVAILABLE;
+                    }
+                    return bitmap.get(date.getDayOfMonth(), slot);
+                })
+                .orElse(null);
+    }
+
+    /** What status() reports for each of the slots, read with one query for all of their months. */
+    @Transactional(readOnly = true)
+    public Map<SlotRef, SlotStatus> statuses(Collection<SlotRef> slots) {
+        Map<String, AvailabilityMonth> records = monthsOf(slots);
+        Map<String, AvailabilityBitmap> bitmaps = new HashMap<>();
+        Map<SlotRef, SlotStatus> result = new HashMap<>();
+        for (SlotRef ref : slots) {
+            String key = monthKey(ref.instructorId(), YearMonth.from(ref.date()).toString());
+            AvailabilityMonth record = records.get(key);
+            int slot = slotIndex(ref.timeSlot());
+            if (record == null || slot < 0) {
+                continue;
+            }
+            AvailabilityBitmap bitmap = bitmaps.computeIfAbsent(key, k -> bitmapOf(record));
+            int day = ref.date().getDayOfMonth();
+            SlotStatus status = bitmap.isDayOff(day) ? SlotStatus.UNAVAILABLE : bitmap.get(day, slot);
+            if (status != null) {
+                result.put(ref, status);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves every slot from AVAILABLE to BOOKED, writing each month row once however many of its
+     * slots are taken. Nothing is written unless all of them were available.
+     */
+    @Transactional
+    public boolean bookAll(Collection<SlotRef> slots) {
+        Map<String, AvailabilityMonth> records = monthsOf(slots);
+        Map<String, AvailabilityBitmap> bitmaps = new HashMap<>();
+        for (SlotRef ref : slots) {
+            String key = monthKey(ref.instructorId(), YearMonth.from(ref.date()).toString());
+            AvailabilityMonth record = records.get(key);
+            int slot = slotIndex(ref.timeSlot());
+            if (record == null || slot < 0) {
+                return false;
+            }
+            AvailabilityBitmap bitmap = bitmaps.computeIfAbsent(key, k -> bitmapOf(record));
+            int day = ref.date().getDayOfMonth();
+            if (bitmap.isDayOff(day) || bitmap.get(day, slot) != SlotStatus.AVAILABLE) {
+                return false;
+            }
+            bitmap.set(day, slot, SlotStatus.BOOKED);
+        }
+        bitmaps.forEach((key, bitmap) -> store(records.get(key), bitmap));
+        return true;
+    }
+
+    /**
+     * updateSlotStatus for many slots at once: each open slot gets its new state, slots that
+     * were never opened are skipped. One read for all the months involved, one write per month.
+     */
+    @Transactional
+    public void updateSlotStatuses(Map<SlotRef, SlotStatus> changes) {
+        Map<String, AvailabilityMonth> records = monthsOf(changes.keySet());
+        Map<String, AvailabilityBitmap> bitmaps = new HashMap<>();
+        changes.forEach((ref, status) -> {
+            String key = monthKey(ref.instructorId(), YearMonth.from(ref.date()).toString());
+            AvailabilityMonth record = records.get(key);
+            int slot = slotIndex(ref.timeSlot());
+            if (record == null || slot < 0) {
+                return;
+            }
+            AvailabilityBitmap bitmap = bitmaps.computeIfAbsent(key, k -> bitmapOf(record));
+            if (bitmap.get(ref.date().getDayOfMonth(), slot) != null) {
+                bitmap.set(ref.date().getDayOfMonth(), slot, status);
+            }
+        });
+        bitmaps.forEach((key, bitmap) -> store(records.get(key), bitmap));
+    }
+
+    /**
+     * Sets the time slots (all of them when none are given) on every day from..to for each
+     * instructor. Slots holding a booking (booked or locked) are left alone, and with openOnly
+     * so are slots that were never opened. The months are read with one query and each changed
+     * month is written once; returns how many slots changed.
+     */
+    @Transactional
+    public int setRange(Collection<Long> instructorIds, LocalDate from, LocalDate to,
+                        Collection<String> timeSlots, SlotStatus status, boolean openOnly) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        if (to.isAfter(from.plusDays(MAX_RANGE_DAYS - 1))) {
+            throw new IllegalArgumentException("At most " + MAX_RANGE_DAYS + " days can be changed at once");
+        }
+        List<Integer> slots = new ArrayList<>();
+        for (String timeSlot : timeSlots == null || timeSlots.isEmpty() ? TIME_SLOTS : timeSlots) {
+            int slot = slotIndex(timeSlot);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown time slot: " + timeSlot);
+            }
+            slots.add(slot);
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        Map<String, AvailabilityMonth> records = new HashMap<>();
+        for (AvailabilityMonth record : availabilityMonthRepository.findByInstructorIdInAndMonthIn(
+                instructorIds, months.stream().map(YearMonth::toString).toList())) {
+            records.put(monthKey(record.getInstructor().getId(), record.getMonth()), record);
+        }
+        int changed = 0;
+        for (Long instructorId : new LinkedHashSet<>(instructorIds)) {
+            for (YearMonth month : months) {
+                AvailabilityMonth record = records.get(monthKey(instructorId, month.toString()));
+                if (record == null) {
+                    if (openOnly) {
+                        continue;
+                    }
+                    record = new AvailabilityMonth();
+                    record.setInstructor(instructorRepository.getReferenceById(instructorId));
+                    record.setMonth(month.toString());
+                }
+                AvailabilityBitmap bitmap = bitmapOf(record);
+                int firstDay = month.equals(YearMonth.from(from)) ? from.getDayOfMonth() : 1;
+                int lastDay = month.equals(YearMonth.from(to)) ? to.getDayOfMonth() : bitmap.lengthOfMonth();
+                int before = changed;
+                for (int day = firstDay; day <= lastDay; day++) {
+                    for (int slot : slots) {
+                        SlotStatus current = bitmap.get(day, slot);
+                        if (current == status || current == SlotStatus.BOOKED || current == SlotStatus.LOCKED
+                                || (openOnly && current == null)) {
+                            continue;
+                        }
+                        bitmap.set(day, slot, status);
+                        changed++;
+                    }
+                }
+                if (changed > before) {
+                    store(record, bitmap);
+                }
+            }
+        }
+        return changed;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AvailabilitySlot> calendar(Instructor instructor, String month) {
+        List<AvailabilitySlot> result = new ArrayList<>();
+        availabilityMonthRepository.findByInstructorAndMonth(instructor, YearMonth.parse(month).toString())
+                .ifPresent(record -> expand(record, result));
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AvailabilitySlot> allAvailability(Instructor instructor) {
+        List<AvailabilitySlot> result = new ArrayList<>();
+        for (AvailabilityMonth record : availabilityMonthRepository.findByInstructorOrderByMonth(instructor)) {
+            expand(record, result);
+        }
+        return result;
+    }
+
+    /** Slot counts per month, read from the counts kept with each month rather than its bitmap. */
+    @Transactional(readOnly = true)
+    public List<MonthSummary> monthSummaries(Long instructorId) {
+        List<MonthSummary> result = new ArrayList<>();
+        for (AvailabilityMonthRepository.SummaryView view : availabilityMonthRepository.findSummariesByInstructorId(instructorId)) {
+            if (view.getAvailable() != null) {
+                result.add(new MonthSummary(view.getMonth(), view.getAvailable(), view.getBooked(),
+                        view.getLocked(), view.getUnavailable(), view.getDaysOff()));
+                continue;
+            }
+            // Not summarized yet, the startup pass has not got to it
+            SlotCounts counts = AvailabilityBitmap.decode(view.getSlotStates(),
+                    YearMonth.parse(view.getMonth()).lengthOfMonth()).counts();
+            result.add(new MonthSummary(view.getMonth(), counts.getAvailable(), counts.getBooked(),
+                    counts.getLocked(), counts.getUnavailable(), counts.getDaysOff()));
+        }
+        return result;
+    }
+
+    /**
+     * A month is enabled when it still has available or booked slots, and disabled when
+     * everything left in it is unavailable.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<String>> months(Instructor instructor) {
+        List<String> enabled = new ArrayList<>();
+        List<String> disabled = new ArrayList<>();
+        for (MonthSummary summary : monthSummaries(instructor.getId())) {
+            if (summary.available() > 0 || summary.booked() > 0) {
+                enabled.add(summary.month());
+            } else if (summary.locked() == 0 && (summary.unavailable() > 0 || summary.daysOff() > 0)) {
+                disabled.add(summary.month());
+            }
+        }
+        return Map.of("enabled", enabled, "disabled", disabled);
+    }
+
+    public static int slotIndex(String timeSlot) {
+        return TIME_SLOTS.indexOf(timeSlot);
+    }
+
+    public static String timeSlotOf(LocalDateTime startTime) {
+        return startTime.toLocalTime().toString().substring(0, 5);
+    }
+
+    private void expand(AvailabilityMonth record, List<AvailabilitySlot> out) {
+        YearMonth yearMonth = YearMonth.parse(record.getMonth());
+        AvailabilityBitmap bitmap = bitmapOf(record);
+        for (int day = 1; day <= bitmap.lengthOfMonth(); day++) {
+            LocalDate date = yearMonth.atDay(day);
+            if (bitmap.isDayOff(day)) {
+                out.add(new AvailabilitySlot(record.getMonth(), date, "00:00",
+                        SlotStatus.UNAVAILABLE.value(), true));
+                continue;
+            }
+            for (int slot = 0; slot < AvailabilityBitmap.SLOTS_PER_DAY; slot++) {
+                SlotStatus status = bitmap.get(day, slot);
+                if (status != null) {
+                    out.add(new AvailabilitySlot(record.getMonth(), date, TIME_SLOTS.get(slot),
+                            status.value(), false));
+                }
+            }
+        }
+    }
+
+    private Map<String, AvailabilityMonth> monthsOf(Collection<SlotRef> slots) {
+        Map<String, AvailabilityMonth> records = new HashMap<>();
+        if (slots.isEmpty()) {
+            return records;
+        }
+        Set<Long> instructorIds = new HashSet<>();
+        Set<String> months = new HashSet<>();
+        for (SlotRef ref : slots) {
+            instructorIds.add(ref.instructorId());
+            months.add(YearMonth.from(ref.date()).toString());
+        }
+        for (AvailabilityMonth record : availabilityMonthRepository.findByInstructorIdInAndMonthIn(instructorIds, months)) {
+            records.put(monthKey(record.getInstructor().getId(), record.getMonth()), record);
+        }
+        return records;
+    }
+
+    private static String monthKey(Long instructorId, String month) {
+        return instructorId + "@" + month;
+    }
+
+    private AvailabilityMonth findOrCreate(Instructor instructor, YearMonth yearMonth) {
+        return availabilityMonthRepository.findByInstructorAndMonth(instructor, yearMonth.toString())
+                .orElseGet(() -> {
+                    AvailabilityMonth record = new AvailabilityMonth();
+                    record.setInstructor(instructor);
+                    record.setMonth(yearMonth.toString());
+                    return record;
+                });
+    }
+
+    private AvailabilityBitmap bitmapOf(AvailabilityMonth record) {
+        return AvailabilityBitmap.decode(record.getSlotStates(),
+                YearMonth.parse(record.getMonth()).lengthOfMonth());
+    }
+
+    private void store(AvailabilityMonth record, AvailabilityBitmap bitmap) {
+        String before = record.getSlotStates();
+        record.setSlotStates(bitmap.encode());
+        record.setCounts(bitmap.counts());
+        availabilityMonthRepository.save(record);
+        announce(record, before, bitmap);
+    }
+
+    /** Streams the calendar entries that differ between the stored states and the new ones. */
+    private void announce(AvailabilityMonth record, String before, AvailabilityBitmap after) {
+        if (!availabilityStream.hasSubscribers()) {
+            return;
+        }
+        YearMonth yearMonth = YearMonth.parse(record.getMonth());
+        AvailabilityBitmap previous = AvailabilityBitmap.decode(before, after.lengthOfMonth());
+        List<AvailabilitySlot> changed = new ArrayList<>();
+        for (int day = 1; day <= after.lengthOfMonth(); day++) {
+            LocalDate date = yearMonth.atDay(day);
+            boolean wasOff = previous.isDayOff(day);
+            if (after.isDayOff(day)) {
+                if (!wasOff) {
+                    changed.add(new AvailabilitySlot(record.getMonth(), date, "00:00", SlotStatus.UNAVAILABLE.value(), true));
+                }
+                continue;
+            }
+            if (wasOff) {
+                changed.add(new AvailabilitySlot(record.getMonth(), date, "00:00", AvailabilityStream.CLOSED, true));
+            }
+            for (int slot = 0; slot < AvailabilityBitmap.SLOTS_PER_DAY; slot++) {
+                SlotStatus status = after.get(day, slot);
+                // The slots of a day off were hidden, so every open one reappears
+                if (wasOff ? status != null : status != previous.get(day, slot)) {
+                    changed.add(new AvailabilitySlot(record.getMonth(), date, TIME_SLOTS.get(slot),
+                            status != null ? status.value() : AvailabilityStream.CLOSED, false));
+                }
+            }
+        }
+        availabilityStream.calendarChanged(record.getInstructor().getId(), changed);
+    }
+}
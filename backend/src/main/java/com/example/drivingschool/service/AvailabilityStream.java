@@ -0,0 +1,311 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.repository.InstructorRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes availability changes to dashboards over server-sent events, so they no longer have to
+ * poll calendars and slot lists. Changes made in one transaction go out as one event after it
+ * commits. Publishing only appends to each matching subscriber's bounded outbox and a small
+ * sender pool does the writes; a subscriber whose outbox fills up is disconnected rather than
+ * slowing anyone else down, and refetches when its EventSource reconnects.
+ */
+@Component
+public class AvailabilityStream {
+    /** Status of a calendar entry or lesson slot that no longer exists. */
+    public static final String CLOSED = "closed";
+
+    /**
+     * One changed calendar entry (the same fields the calendar endpoints return) or, when
+     * slotId is set, one changed lesson slot.
+     */
+    public record Change(Long instructorId,
+                         Long schoolId,
+                         Long slotId,
+                         String month,
+                         LocalDate day,
+                         String timeSlot,
+                         String status,
+                         boolean unavailableDay) {}
+
+    private final InstructorRepository instructorRepository;
+    private final int outboxCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final AtomicLong eventIds = new AtomicLong();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    // Each subscriber is filed under its most selective filter, so a change only visits the ones it may match
+    private final Map<Long, Set<Subscriber>> byInstructor = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> bySchool = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> byMonth = new ConcurrentHashMap<>();
+    private final Set<Subscriber> everything = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> all = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Optional<Long>> schoolOfInstructor = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "availability-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AvailabilityStream(InstructorRepository instructorRepository,
+                              @Value("${availability.stream.outbox-size:64}") int outboxCapacity,
+                              @Value("${availability.stream.max-subscribers:10000}") int maxSubscribers,
+                              @Value("${availability.stream.timeout-minutes:30}") long timeoutMinutes,
+                              @Value("${availability.stream.sender-threads:2}") int senderThreads) {
+        this.instructorRepository = instructorRepository;
+        this.outboxCapacity = outboxCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = Duration.ofMinutes(timeoutMinutes).toMillis();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread thread = new Thread(r, "availability-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Keeps idle connections open through proxies and finds clients that went away
+        heartbeat.scheduleWithFixedDelay(() -> all.forEach(s -> s.offer(SseEmitter.event().comment("heartbeat"))),
+                25, 25, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        new ArrayList<>(all).forEach(s -> s.close());
+    }
+
+    /**
+     * Subscribes to the changes matching every filter given; no filter at all means every change.
+     * A month that is not YYYY-MM is an IllegalArgumentException.
+     */
+    public SseEmitter subscribe(Long instructorId, Long schoolId, String month) {
+        String monthFilter;
+        try {
+            monthFilter = month != null ? YearMonth.parse(month).toString() : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("month must be YYYY-MM", e);
+        }
+        // Reserved before anything is registered, so concurrent subscribes cannot overshoot the limit
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new RejectedExecutionException("Too many open availability streams, please try again later");
+        }
+        Subscriber subscriber = new Subscriber(instructorId, schoolId, monthFilter, new SseEmitter(timeoutMillis));
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> subscriber.close());
+        emitter.onError(e -> remove(subscriber));
+        all.add(subscriber);
+        index(subscriber).add(subscriber);
+        // Flushes the response headers so the client knows it is connected
+        subscriber.offer(SseEmitter.event().comment("subscribed"));
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return !all.isEmpty();
+    }
+
+    /** Calendar entries of one instructor that were changed, opened or closed. */
+    public void calendarChanged(Long instructorId, List<AvailabilityService.AvailabilitySlot> entries) {
+        if (entries.isEmpty() || !hasSubscribers()) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(entries.size());
+        for (AvailabilityService.AvailabilitySlot entry : entries) {
+            changes.add(new Change(instructorId, null, null, entry.month(), entry.day(), entry.timeSlot(),
+                    entry.status(), entry.unavailableDay()));
+        }
+        publish(changes);
+    }
+
+    /** The lesson slot was booked or released. */
+    public void slotChanged(LessonSlot slot) {
+        slotChanged(slot, slot.isAvailable() ? "available" : "booked");
+    }
+
+    public void slotRemoved(LessonSlot slot) {
+        slotChanged(slot, CLOSED);
+    }
+
+    private void slotChanged(LessonSlot slot, String status) {
+        if (!hasSubscribers() || slot.getInstructor() == null) {
+            return;
+        }
+        publish(List.of(new Change(slot.getInstructor().getId(), null, slot.getId(),
+                YearMonth.from(slot.getStartTime()).toString(), slot.getStartTime().toLocalDate(),
+                AvailabilityService.timeSlotOf(slot.getStartTime()), status, false)));
+    }
+
+    private void publish(List<Change> changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(changes);
+            return;
+        }
+        // Buffer per transaction: nothing is sent if it rolls back, and all of it goes out as one event
+        @SuppressWarnings("unchecked")
+        List<Change> pending = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Change> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AvailabilityStream.this);
+                }
+            });
+            pending = buffer;
+        }
+        pending.addAll(changes);
+    }
+
+    private void deliver(List<Change> changes) {
+        Map<Subscriber, List<Change>> outgoing = new HashMap<>();
+        for (Change change : changes) {
+            Long schoolId = bySchool.isEmpty() ? null : schoolOf(change.instructorId());
+            Change addressed = schoolId == null ? change : new Change(change.instructorId(), schoolId,
+                    change.slotId(), change.month(), change.day(), change.timeSlot(), change.status(),
+                    change.unavailableDay());
+            List<Set<Subscriber>> candidates = Arrays.asList(byInstructor.get(addressed.instructorId()),
+                    schoolId != null ? bySchool.get(schoolId) : null, byMonth.get(addressed.month()), everything);
+            for (Set<Subscriber> group : candidates) {
+                if (group == null) {
+                    continue;
+                }
+                for (Subscriber subscriber : group) {
+                    if (subscriber.matches(addressed)) {
+                        outgoing.computeIfAbsent(subscriber, s -> new ArrayList<>()).add(addressed);
+                    }
+                }
+            }
+        }
+        outgoing.forEach((subscriber, batch) -> subscriber.offer(SseEmitter.event()
+                .id(Long.toString(eventIds.incrementAndGet()))
+                .name("availability")
+                .data(batch, MediaType.APPLICATION_JSON)));
+    }
+
+    private Long schoolOf(Long instructorId) {
+        // Instructors never move school, so the answer can be kept
+        return schoolOfInstructor.computeIfAbsent(instructorId, instructorRepository::findSchoolIdById).orElse(null);
+    }
+
+    private Set<Subscriber> index(Subscriber subscriber) {
+        if (subscriber.instructorId != null) {
+            return byInstructor.computeIfAbsent(subscriber.instructorId, k -> ConcurrentHashMap.newKeySet());
+        }
+        if (subscriber.schoolId != null) {
+            return bySchool.computeIfAbsent(subscriber.schoolId, k -> ConcurrentHashMap.newKeySet());
+        }
+        if (subscriber.month != null) {
+            return byMonth.computeIfAbsent(subscriber.month, k -> ConcurrentHashMap.newKeySet());
+        }
+        return everything;
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!all.remove(subscriber)) {
+            return;
+        }
+        subscribers.decrementAndGet();
+        if (subscriber.instructorId != null) {
+            byInstructor.computeIfPresent(subscriber.instructorId, (k, set) -> set.remove(subscriber) && set.isEmpty() ? null : set);
+        } else if (subscriber.schoolId != null) {
+            bySchool.computeIfPresent(subscriber.schoolId, (k, set) -> set.remove(subscriber) && set.isEmpty() ? null : set);
+        } else if (subscriber.month != null) {
+            byMonth.computeIfPresent(subscriber.month, (k, set) -> set.remove(subscriber) && set.isEmpty() ? null : set);
+        } else {
+            everything.remove(subscriber);
+        }
+    }
+
+    private final class Subscriber {
+        private final Long instructorId;
+        private final Long schoolId;
+        private final String month;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(Long instructorId, Long schoolId, String month, SseEmitter emitter) {
+            this.instructorId = instructorId;
+            this.schoolId = schoolId;
+            this.month = month;
+            this.emitter = emitter;
+        }
+
+        private boolean matches(Change change) {
+            return (instructorId == null || instructorId.equals(change.instructorId()))
+                    && (schoolId == null || schoolId.equals(change.schoolId()))
+                    && (month == null || month.equals(change.month()));
+        }
+
+        /** Never blocks: a full outbox means the client is not keeping up, and it is dropped. */
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!outbox.offer(event)) {
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = outbox.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away or the emitter already completed
+                        outbox.clear();
+                        remove(this);
+                        return;
+                    }
+                }
+                draining.set(false);
+                // An offer may have slipped in between the last poll and releasing the flag
+            } while (!outbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void close() {
+            remove(this);
+            outbox.clear();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.controller.BookingController;
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.BookingRepository;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Books a package of lessons in one transaction. The slots, instructors and availability months
+ * the batch touches are each read with one set-based query, the slots are locked up front, and
+ * new slots and bookings go out as batched inserts.
+ */
+@Service
+public class BatchBookingService {
+    public static final int MAX_ITEMS = 50;
+    private static final String DUPLICATE_IN_PACKAGE = "Lesson appears more than once in the batch";
+
+    public enum Mode { ALL_OR_NOTHING, BEST_EFFORT }
+
+    public record ItemResult(int index,
+                             boolean booked,
+                             Long bookingId,
+                             Long slotId,
+                             LocalDateTime startTime,
+                             String error) {}
+
+    public record BatchResult(Mode mode,
+                              int booked,
+                              LocalDateTime holdExpiresAt,
+                              List<ItemResult> items) {}
+
+    /** One lesson and who it is for; a package repeats the same learner on every order. */
+    record Order(BookingController.BatchBookingItem item,
+                 Long userId,
+                 String fullName,
+                 String email,
+                 String phone,
+                 String paymentMethod,
+                 String cardLast4) {}
+
+    private final LearnerResolver learnerResolver;
+    private final BookingRepository bookingRepository;
+    private final LessonSlotRepository slotRepository;
+    private final InstructorRepository instructorRepository;
+    private final AvailabilityService availabilityService;
+    private final OptimisticRetry optimisticRetry;
+    private final HoldExpiryScheduler holdExpiryScheduler;
+    private final AvailabilityStream availabilityStream;
+
+    public BatchBookingService(LearnerResolver learnerResolver,
+                               BookingRepository bookingRepository,
+                               LessonSlotRepository slotRepository,
+                               InstructorRepository instructorRepository,
+                               AvailabilityService availabilityService,
+                               OptimisticRetry optimisticRetry,
+                               HoldExpiryScheduler holdExpiryScheduler,
+                               AvailabilityStream availabilityStream) {
+        this.learnerResolver = learnerResolver;
+        this.bookingRepository = bookingRepository;
+        this.slotRepository = slotRepository;
+        this.instructorRepository = instructorRepository;
+        this.availabilityService = availabilityService;
+        this.optimisticRetry = optimisticRetry;
+        this.holdExpiryScheduler = holdExpiryScheduler;
+        this.availabilityStream = availabilityStream;
+    }
+
+    /**
+     * Every lesson is held PENDING for the instructor to confirm, as in the single driver flow.
+     * ALL_OR_NOTHING books nothing if any lesson fails; BEST_EFFORT books the ones that can be.
+     */
+    public BatchResult book(BookingController.CreateBatchBookingRequest req) {
+        if (req.items() == null || req.items().isEmpty()) {
+            throw new IllegalArgumentException("At least one lesson is required");
+        }
+        if (req.items().size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_ITEMS + " lessons can be booked at once");
+        }
+        Mode mode = req.mode() != null ? req.mode() : Mode.ALL_OR_NOTHING;
+        List<Order> orders = new ArrayList<>(req.items().size());
+        for (BookingController.BatchBookingItem item : req.items()) {
+            orders.add(new Order(item, req.userId(), req.fullName(), req.email(), req.phone(),
+                    req.paymentMethod(), req.cardLast4()));
+        }
+        return book(orders, mode, DUPLICATE_IN_PACKAGE);
+    }
+
+    /**
+     * Books the orders in one transaction, each one PENDING with the same hold. An order for a
+     * lesson an earlier order already took fails with duplicateError.
+     */
+    BatchResult book(List<Order> orders, Mode mode, String duplicateError) {
+        LocalDateTime holdExpiresAt = holdExpiryScheduler.expiryFromNow();
+        BatchResult result = optimisticRetry.execute(() -> bookAll(orders, mode, holdExpiresAt, duplicateError));
+        for (ItemResult item : result.items()) {
+            holdExpiryScheduler.schedule(item.bookingId(), holdExpiresAt);
+        }
+        return result;
+    }
+
+    private BatchResult bookAll(List<Order> orders, Mode mode, LocalDateTime holdExpiresAt, String duplicateError) {
+        List<BookingController.BatchBookingItem> items = orders.stream().map(Order::item).toList();
+        int n = items.size();
+        String[] errors = new String[n];
+        LocalDateTime[] starts = new LocalDateTime[n];
+        Set<Long> slotIds = new HashSet<>();
+        Set<Long> instructorIds = new HashSet<>();
+        Set<LocalDateTime> startTimes = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            BookingController.BatchBookingItem item = items.get(i);
+            if (item == null) {
+                errors[i] = "Empty item";
+            } else if (item.slotId() != null) {
+                slotIds.add(item.slotId());
+            } else if (item.instructorId() == null || item.date() == null || item.timeSlot() == null) {
+                errors[i] = "Either slotId or instructorId, date and timeSlot are required";
+            } else if (AvailabilityService.slotIndex(item.timeSlot()) < 0) {
+                errors[i] = "Unknown time slot: " + item.timeSlot();
+            } else {
+                try {
+                    starts[i] = LocalDateTime.of(LocalDate.parse(item.date()), LocalTime.parse(item.timeSlot()));
+                    instructorIds.add(item.instructorId());
+                    startTimes.add(starts[i]);
+                } catch (DateTimeParseException e) {
+                    errors[i] = "Invalid date: " + item.date();
+                }
+            }
+        }
+
+        Map<Long, LessonSlot> slotsById = new HashMap<>();
+        if (!slotIds.isEmpty()) {
+            for (LessonSlot slot : slotRepository.lockByIdIn(slotIds)) {
+                slotsById.put(slot.getId(), slot);
+            }
+        }
+        Map<Long, Instructor> instructors = new HashMap<>();
+        Map<String, LessonSlot> slotsAt = new HashMap<>();
+        List<AvailabilityService.SlotRef> refs = new ArrayList<>();
+        if (!instructorIds.isEmpty()) {
+            for (Instructor instructor : instructorRepository.findByIdIn(instructorIds)) {
+                instructors.put(instructor.getId(), instructor);
+            }
+            for (LessonSlot slot : slotRepository.lockByInstructorIdInAndStartTimeIn(instructorIds, startTimes)) {
+                slotsAt.put(key(slot.getInstructor().getId(), slot.getStartTime()), slot);
+            }
+            for (int i = 0; i < n; i++) {
+                if (errors[i] == null && starts[i] != null) {
+                    refs.add(ref(items.get(i), starts[i]));
+                }
+            }
+        }
+        Map<AvailabilityService.SlotRef, SlotStatus> statuses = availabilityService.statuses(refs);
+
+        LessonSlot[] slots = new LessonSlot[n];
+        AvailabilityService.SlotRef[] availability = new AvailabilityService.SlotRef[n];
+        Set<String> seen = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < n; i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            BookingController.BatchBookingItem item = items.get(i);
+            String key;
+            if (item.slotId() != null) {
+                LessonSlot slot = slotsById.get(item.slotId());
+                if (slot == null) {
+                    errors[i] = "Slot not found";
+                    continue;
+                }
+                starts[i] = slot.getStartTime();
+                key = key(slot.getInstructor().getId(), slot.getStartTime());
+                if (!slot.isAvailable()) {
+                    errors[i] = "Slot already booked";
+                }
+                slots[i] = slot;
+            } else {
+                key = key(item.instructorId(), starts[i]);
+                AvailabilityService.SlotRef ref = ref(item, starts[i]);
+                LessonSlot existing = slotsAt.get(key);
+                if (!instructors.containsKey(item.instructorId())) {
+                    errors[i] = "Instructor not found";
+                } else if (statuses.get(ref) != SlotStatus.AVAILABLE) {
+                    errors[i] = "Time slot is not available";
+                } else if (existing != null && !existing.isAvailable()) {
+                    errors[i] = "Slot already booked";
+                }
+                slots[i] = existing;
+                availability[i] = ref;
+            }
+            if (errors[i] == null && starts[i].isBefore(now)) {
+                errors[i] = "Lesson is in the past";
+            }
+            if (errors[i] == null && !seen.add(key)) {
+                errors[i] = duplicateError;
+            }
+        }
+
+        boolean anyFailed = Arrays.stream(errors).anyMatch(Objects::nonNull);
+        if (mode == Mode.ALL_OR_NOTHING && anyFailed) {
+            return rejected(mode, errors, slots, starts);
+        }
+        User[] learners = resolveLearners(orders, errors, mode);
+        if (Arrays.stream(errors).allMatch(Objects::nonNull)) {
+            return rejected(mode, errors, slots, starts);
+        }
+
+        List<LessonSlot> created = new ArrayList<>();
+        List<AvailabilityService.SlotRef> toBook = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            if (slots[i] == null) {
+                slots[i] = BookingService.newSlot(instructors.get(items.get(i).instructorId()), starts[i]);
+                created.add(slots[i]);
+            }
+            // Locked above, so a plain dirty update is enough; the updates are flushed as one batch
+            slots[i].setAvailable(false);
+            if (availability[i] != null) {
+                toBook.add(availability[i]);
+            }
+        }
+        slotRepository.saveAll(created);
+        for (int i = 0; i < n; i++) {
+            if (errors[i] == null) {
+                availabilityStream.slotChanged(slots[i]);
+            }
+        }
+        if (!availabilityService.bookAll(toBook)) {
+            throw new IllegalStateException("Availability changed while booking, please try again");
+        }
+
+        Booking[] bookings = new Booking[n];
+        for (int i = 0; i < n; i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            Order order = orders.get(i);
+            Booking booking = new Booking();
+            booking.setLearner(learners[i]);
+            booking.setSlot(slots[i]);
+            booking.setStatus(BookingStatus.PENDING);
+            booking.setHoldExpiresAt(holdExpiresAt);
+            if (order.paymentMethod() != null) {
+                booking.setPaymentMethod(order.paymentMethod().toUpperCase());
+            }
+            booking.setCardLast4(order.cardLast4());
+            bookings[i] = booking;
+        }
+        bookingRepository.saveAll(Arrays.stream(bookings).filter(Objects::nonNull).toList());
+
+        List<ItemResult> results = new ArrayList<>(n);
+        int booked = 0;
+        for (int i = 0; i < n; i++) {
+            if (bookings[i] != null) {
+                booked++;
+                results.add(new ItemResult(i, true, bookings[i].getId(), slots[i].getId(), starts[i], null));
+            } else {
+                results.add(new ItemResult(i, false, null, slots[i] != null ? slots[i].getId() : null, starts[i], errors[i]));
+            }
+        }
+        return new BatchResult(mode, booked, holdExpiresAt, results);
+    }
+
+    /**
+     * The learner of every still valid order, resolved once per distinct learner. BEST_EFFORT
+     * turns an unknown learner into that order's error; ALL_OR_NOTHING lets it fail the batch.
+     */
+    private User[] resolveLearners(List<Order> orders, String[] errors, Mode mode) {
+        User[] learners = new User[orders.size()];
+        Map<List<Object>, User> resolved = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            Order order = orders.get(i);
+            List<Object> who = Arrays.asList(order.userId(), order.email(), order.fullName(), order.phone());
+            try {
+                User learner = resolved.get(who);
+                if (learner == null) {
+                    learner = learnerResolver.resolve(order.userId(), order.email(), order.fullName(), order.phone());
+                    resolved.put(who, learner);
+                }
+                learners[i] = learner;
+            } catch (IllegalArgumentException e) {
+                if (mode == Mode.ALL_OR_NOTHING) {
+                    throw e;
+                }
+                errors[i] = e.getMessage();
+            }
+        }
+        return learners;
+    }
+
+    private static BatchResult rejected(Mode mode, String[] errors, LessonSlot[] slots, LocalDateTime[] starts) {
+        List<ItemResult> results = new ArrayList<>(errors.length);
+        for (int i = 0; i < errors.length; i++) {
+            String error = errors[i] != null ? errors[i] : "Not booked because another lesson in the batch failed";
+            results.add(new ItemResult(i, false, null, slots[i] != null ? slots[i].getId() : null, starts[i], error));
+        }
+        return new BatchResult(mode, 0, null, results);
+    }
+
+    private static AvailabilityService.SlotRef ref(BookingController.BatchBookingItem item, LocalDateTime start) {
+        return new AvailabilityService.SlotRef(item.instructorId(), start.toLocalDate(), item.timeSlot());
+    }
+
+    private static String key(Long instructorId, LocalDateTime start) {
+        return instructorId + "@" + start;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.Booking;
+import com.example.drivingschool.model.BookingStatus;
+import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.repository.BookingRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class BookingHoldService {
+    private final BookingRepository bookingRepository;
+    private final AvailabilityService availabilityService;
+    private final AvailabilityStream availabilityStream;
+    private final WaitlistService waitlistService;
+
+    public BookingHoldService(BookingRepository bookingRepository, AvailabilityService availabilityService,
+                              AvailabilityStream availabilityStream, WaitlistService waitlistService) {
+        this.bookingRepository = bookingRepository;
+        this.availabilityService = availabilityService;
+        this.availabilityStream = availabilityStream;
+        this.waitlistService = waitlistService;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingRepository.HoldView> outstandingHolds() {
+        return bookingRepository.findByStatusAndHoldExpiresAtIsNotNull(BookingStatus.PENDING);
+    }
+
+    /**
+     * Cancels the expired PENDING bookings among the ids and gives their slots back, or to the
+     * next learner on the slot's waitlist. Returns the bookings made for waitlisted learners.
+     */
+    @Transactional
+    public List<Booking> releaseExpired(Collection<Long> bookingIds, LocalDateTime newHoldExpiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Booking> promoted = new ArrayList<>();
+        for (Booking booking : bookingRepository.findByIdInAndStatusAndHoldExpiresAtLessThanEqual(
+                bookingIds, BookingStatus.PENDING, now)) {
+            if (bookingRepository.expireHold(booking.getId(), now) == 0) {
+                continue;
+            }
+            LessonSlot slot = booking.getSlot();
+            if (slot == null) {
+                continue;
+            }
+            Booking next = waitlistService.promote(slot, newHoldExpiresAt);
+            if (next != null) {
+                promoted.add(next);
+                continue;
+            }
+            slot.setAvailable(true);
+            availabilityStream.slotChanged(slot);
+            availabilityService.transition(slot.getInstructor(), slot.getStartTime().toLocalDate(),
+                    AvailabilityService.timeSlotOf(slot.getStartTime()), SlotStatus.BOOKED, SlotStatus.AVAILABLE);
+        }
+        return promoted;
+    }
+}
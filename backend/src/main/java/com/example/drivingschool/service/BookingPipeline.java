@@ -0,0 +1,200 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.controller.BookingController;
+import com.example.drivingschool.model.Booking;
+import com.example.drivingschool.repository.BookingRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Asynchronous driver-availability bookings for peak hours. Requests wait in a bounded queue
+ * and a single worker books them in micro-batches, one transaction per batch, so a surge holds
+ * one connection for a few statements per batch instead of one per request for several
+ * round-trips each. Two requests for the same lesson in a batch are settled in memory: the
+ * earlier one wins.
+ */
+@Service
+public class BookingPipeline {
+    public static final int MAX_WAIT_SECONDS = 30;
+
+    public enum State { QUEUED, BOOKED, REJECTED }
+
+    public record QueuedBooking(String ticket,
+                                State state,
+                                Long bookingId,
+                                BookingRepository.BookingView booking,
+                                String error) {}
+
+    private record Pending(String ticket,
+                           BookingController.CreateDriverAvailabilityBookingRequest request,
+                           CompletableFuture<QueuedBooking> outcome) {}
+
+    private static final Logger log = LoggerFactory.getLogger(BookingPipeline.class);
+    private static final String TAKEN = "Time slot is not available";
+
+    private final BatchBookingService batchBookingService;
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    // Outcomes stay around long enough for clients to poll them
+    private final Cache<String, CompletableFuture<QueuedBooking>> tickets;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "booking-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BookingPipeline(BatchBookingService batchBookingService,
+                           BookingService bookingService,
+                           BookingRepository bookingRepository,
+                           @Value("${booking.pipeline.queue-capacity:1000}") int queueCapacity,
+                           @Value("${booking.pipeline.batch-size:50}") int batchSize,
+                           @Value("${booking.pipeline.linger-ms:5}") long lingerMs,
+                           @Value("${booking.pipeline.result-ttl-minutes:15}") long resultTtlMinutes) {
+        this.batchBookingService = batchBookingService;
+        this.bookingService = bookingService;
+        this.bookingRepository = bookingRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(resultTtlMinutes))
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.execute(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(p -> reject(p, "Server is shutting down, please try again"));
+    }
+
+    /** Queues the booking and returns its ticket; fails fast when the queue is full. */
+    public QueuedBooking submit(BookingController.CreateDriverAvailabilityBookingRequest req) {
+        if (req.instructorId() == null) {
+            throw new IllegalArgumentException("Instructor ID is required");
+        }
+        if (req.date() == null || req.timeSlot() == null) {
+            throw new IllegalArgumentException("Date and time slot are required");
+        }
+        Pending pending = new Pending(UUID.randomUUID().toString(), req, new CompletableFuture<>());
+        tickets.put(pending.ticket(), pending.outcome());
+        if (!queue.offer(pending)) {
+            tickets.invalidate(pending.ticket());
+            throw new RejectedExecutionException("Too many bookings in progress, please try again shortly");
+        }
+        return queued(pending.ticket());
+    }
+
+    /** The ticket's outcome, completed once its batch has been committed or rejected. */
+    public Optional<CompletableFuture<QueuedBooking>> outcome(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    public static QueuedBooking queued(String ticket) {
+        return new QueuedBooking(ticket, State.QUEUED, null, null, null);
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                // Linger briefly so a surge fills the batch instead of committing one request at a time
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> reject(p, "Server is shutting down, please try again"));
+            } catch (RuntimeException e) {
+                log.error("Booking pipeline batch of {} failed", batch.size(), e);
+                batch.forEach(p -> reject(p, "Booking failed, please try again"));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Pending> batch) {
+        List<BatchBookingService.Order> orders = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            BookingController.CreateDriverAvailabilityBookingRequest req = pending.request();
+            orders.add(new BatchBookingService.Order(
+                    new BookingController.BatchBookingItem(null, req.instructorId(), req.date(), req.timeSlot()),
+                    req.userId(), req.fullName(), req.email(), req.phone(), req.paymentMethod(), req.cardLast4()));
+        }
+        BatchBookingService.BatchResult result;
+        try {
+            result = batchBookingService.book(orders, BatchBookingService.Mode.BEST_EFFORT, TAKEN);
+        } catch (RuntimeException e) {
+            // Whatever sank the shared transaction must not sink every request in it; book them one by one
+            log.warn("Booking batch of {} failed ({}), booking its requests individually", batch.size(), e.getMessage());
+            batch.forEach(this::bookAlone);
+            return;
+        }
+        List<Long> bookingIds = result.items().stream()
+                .map(BatchBookingService.ItemResult::bookingId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, BookingRepository.BookingView> views = new HashMap<>();
+        if (!bookingIds.isEmpty()) {
+            for (BookingRepository.BookingView view : bookingRepository.findViewsByIdIn(bookingIds)) {
+                views.put(view.getId(), view);
+            }
+        }
+        for (BatchBookingService.ItemResult item : result.items()) {
+            Pending pending = batch.get(item.index());
+            if (item.booked()) {
+                pending.outcome().complete(new QueuedBooking(pending.ticket(), State.BOOKED,
+                        item.bookingId(), views.get(item.bookingId()), null));
+            } else {
+                reject(pending, item.error());
+            }
+        }
+    }
+
+    private void bookAlone(Pending pending) {
+        try {
+            Booking booking = bookingService.createBookingFromDriverAvailability(pending.request());
+            pending.outcome().complete(new QueuedBooking(pending.ticket(), State.BOOKED,
+                    booking.getId(), bookingService.view(booking), null));
+        } catch (RuntimeException e) {
+            reject(pending, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private static void reject(Pending pending, String error) {
+        pending.outcome().complete(new QueuedBooking(pending.ticket(), State.REJECTED, null, null, error));
+    }
+}
@@ -3,6 +3,14 @@ package com.example.drivingschool.service;
 import com.example.drivingschool.controller.BookingController;
 import com.example.drivingschool.model.*;
 import com.example.drivingschool.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,135 +18,372 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.List;
+import java.util.*;
 
 @Service
 public class BookingService {
+    public static final int MAX_BULK_BOOKINGS = 500;
+
+    public record BulkResult(List<Long> updated, Map<Long, String> failed) {}
+
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final LessonSlotRepository slotRepository;
     private final InstructorRepository instructorRepository;
-    private final DriverAvailabilityRepository driverAvailabilityRepository;
+    private final AvailabilityService availabilityService;
+    private final OptimisticRetry optimisticRetry;
+    private final HoldExpiryScheduler holdExpiryScheduler;
+    private final EntityManager entityManager;
+    private final LearnerResolver learnerResolver;
+    private final AvailabilityStream availabilityStream;
+    private final WaitlistService waitlistService;
 
     public BookingService(BookingRepository bookingRepository,
                           UserRepository userRepository,
                           LessonSlotRepository slotRepository,
                           InstructorRepository instructorRepository,
-                          DriverAvailabilityRepository driverAvailabilityRepository) {
+                          AvailabilityService availabilityService,
+                          OptimisticRetry optimisticRetry,
+                          HoldExpiryScheduler holdExpiryScheduler,
+                          EntityManager entityManager,
+                          LearnerResolver learnerResolver,
+                          AvailabilityStream availabilityStream,
+                          WaitlistService waitlistService) {
         this.bookingRepository = bookingRepository;
         this.userRepository = userRepository;
         this.slotRepository = slotRepository;
         this.instructorRepository = instructorRepository;
-        this.driverAvailabilityRepository = driverAvailabilityRepository;
+        this.availabilityService = availabilityService;
+        this.optimisticRetry = optimisticRetry;
+        this.holdExpiryScheduler = holdExpiryScheduler;
+        this.entityManager = entityManager;
+        this.learnerResolver = learnerResolver;
+        this.availabilityStream = availabilityStream;
+        this.waitlistService = waitlistService;
     }
 
-    public List<LessonSlot> availableSlots(Long instructorId) {
-        Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
-        return slotRepository.findByInstructorAndStartTimeAfter(instructor, LocalDateTime.now());
+    public List<LessonSlotRepository.SlotView> availableSlots(Long instructorId) {
+        if (!instructorRepository.existsById(instructorId)) {
+            throw new NoSuchElementException("Instructor not found");
+        }
+        return slotRepository.findViewsByInstructorIdAndStartTimeAfter(instructorId, LocalDateTime.now());
+    }
+
+    public BookingRepository.BookingView view(Booking booking) {
+        return bookingRepository.findViewById(booking.getId()).orElseThrow();
     }
 
-    @Transactional
     public Booking createBooking(BookingController.CreateBookingRequest req) {
+        return optimisticRetry.execute(() -> bookSlot(req, BookingStatus.CONFIRMED)); // Keep existing behavior
+    }
+
+    public Booking createPendingBooking(BookingController.CreateBookingRequest req) {
+        Booking booking = optimisticRetry.execute(() -> bookSlot(req, BookingStatus.PENDING)); // PENDING for driver confirmation
+        holdExpiryScheduler.schedule(booking.getId(), booking.getHoldExpiresAt());
+        return booking;
+    }
+
+    private Booking bookSlot(BookingController.CreateBookingRequest req, BookingStatus status) {
         LessonSlot slot = slotRepository.findById(req.slotId()).orElseThrow();
-        if (!slot.isAvailable()) {
+        if (!slot.isAvailable() || slotRepository.claim(slot.getId()) == 0) {
             throw new IllegalStateException("Slot already booked");
         }
+        // The claim cleared the persistence context, reload the slot in its booked state
+        slot = slotRepository.findById(req.slotId()).orElseThrow();
+        availabilityStream.slotChanged(slot);
 
-        User learner;
-        if (req.userId() != null) {
-            learner = userRepository.findById(req.userId()).orElseThrow();
-        } else if (req.email() != null && !req.email().isBlank()) {
-            learner = userRepository.findByEmail(req.email()).orElseGet(() -> {
-                User u = new User();
-                u.setEmail(req.email());
-                u.setFullName(req.fullName());
-                u.setPhone(req.phone());
-                u.setRole(UserRole.LEARNER);
-                return userRepository.save(u);
-            });
-            // update details if provided
-            if (req.fullName() != null) learner.setFullName(req.fullName());
-            if (req.phone() != null) learner.setPhone(req.phone());
-            learner = userRepository.save(learner);
-        } else {
-            throw new IllegalArgumentException("User information required");
-        }
+        User learner = learnerResolver.resolve(req.userId(), req.email(), req.fullName(), req.phone());
 
-        slot.setAvailable(false);
         Booking booking = new Booking();
         booking.setLearner(learner);
         booking.setSlot(slot);
-        booking.setStatus(BookingStatus.CONFIRMED); // Keep existing behavior
+        booking.setStatus(status);
+        if (status == BookingStatus.PENDING) {
+            booking.setHoldExpiresAt(holdExpiryScheduler.expiryFromNow());
+        }
         if (req.paymentMethod() != null) {
             booking.setPaymentMethod(req.paymentMethod().toUpperCase());
         }
         booking.setCardLast4(req.cardLast4());
-        slotRepository.save(slot);
         return bookingRepository.save(booking);
     }
 
+    /** A lesson at the instructor's school's default length and price. */
+    static LessonSlot newSlot(Instructor instructor, LocalDateTime startTime) {
+        School school = instructor.getSchool();
+        LessonSlot slot = new LessonSlot();
+        slot.setInstructor(instructor);
+        slot.setStartTime(startTime);
+        slot.setDurationMinutes(school != null && school.getDefaultLessonMinutes() != null
+                ? school.getDefaultLessonMinutes() : 60);
+        slot.setPrice(school != null && school.getPricePerLesson() != null
+                ? school.getPricePerLesson() : BigDecimal.valueOf(350));
+        slot.setAvailable(true);
+        return slot;
+    }
+
+    /** Deletes the slot with its waitlist; if the delete fails, for instance on a booking, the waitlist stays. */
     @Transactional
-    public Booking createPendingBooking(BookingController.CreateBookingRequest req) {
-        LessonSlot slot = slotRepository.findById(req.slotId()).orElseThrow();
-        if (!slot.isAvailable()) {
-            throw new IllegalStateException("Slot already booked");
+    public void deleteSlot(Long slotId) {
+        slotRepository.findById(slotId).ifPresent(slot -> {
+            waitlistService.slotDeleted(slotId);
+            slotRepository.delete(slot);
+            availabilityStream.slotRemoved(slot);
+        });
+    }
+
+    public List<BookingRepository.BookingView> bookingsForUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NoSuchElementException("User not found");
         }
+        return bookingRepository.findViewsByLearnerId(userId);
+    }
+
+    public record BookingFilter(BookingStatus status,
+                                Long instructorId,
+                                Long schoolId,
+                                LocalDateTime createdFrom,
+                                LocalDateTime createdTo,
+                                LocalDateTime startFrom,
+                                LocalDateTime startTo) {}
+
+    /** Newest bookings first; the cursor is the id of the last booking on the previous page. */
+    @Transactional(readOnly = true)
+    public CursorPage<BookingRepository.BookingView> listBookings(BookingFilter filter, Long cursor, Integer limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        // Filter on ids alone, then fetch the page's rows as flat views in one more query
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Booking> root = query.from(Booking.class);
+        query.select(root.get("id"))
+                .where(bookingSpec(filter, cursor).toPredicate(root, query, cb))
+                .orderBy(cb.desc(root.get("id")));
+        List<Long> ids = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+        List<BookingRepository.BookingView> rows = ids.isEmpty() ? List.of() : bookingRepository.findViewsByIdIn(ids);
+        return CursorPage.of(rows, pageSize, BookingRepository.BookingView::getId);
+    }
+
+    private static Specification<Booking> bookingSpec(BookingFilter filter, Long cursor) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (cursor != null) {
+                predicates.add(cb.lessThan(root.<Long>get("id"), cursor));
+            }
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.createdFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), filter.createdFrom()));
+            }
+            if (filter.createdTo() != null) {
+                predicates.add(cb.lessThan(root.<LocalDateTime>get("createdAt"), filter.createdTo()));
+            }
+            if (filter.instructorId() != null || filter.schoolId() != null
+                    || filter.startFrom() != null || filter.startTo() != null) {
+                Join<Booking, LessonSlot> slot = root.join("slot");
+                if (filter.instructorId() != null) {
+                    predicates.add(cb.equal(slot.get("instructor").get("id"), filter.instructorId()));
+                }
+                if (filter.schoolId() != null) {
+                    predicates.add(cb.equal(slot.get("instructor").get("school").get("id"), filter.schoolId()));
+                }
+                if (filter.startFrom() != null) {
+                    predicates.add(cb.greaterThanOrEqualTo(slot.<LocalDateTime>get("startTime"), filter.startFrom()));
+                }
+                if (filter.startTo() != null) {
+                    predicates.add(cb.lessThan(slot.<LocalDateTime>get("startTime"), filter.startTo()));
+                }
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
 
-        User learner;
-        if (req.userId() != null) {
-            learner = userRepository.findById(req.userId()).orElseThrow();
-        } else if (req.email() != null && !req.email().isBlank()) {
-            learner = userRepository.findByEmail(req.email()).orElseGet(() -> {
-                User u = new User();
-                u.setEmail(req.email());
-                u.setFullName(req.fullName());
-                u.setPhone(req.phone());
-                u.setRole(UserRole.LEARNER);
-                return userRepository.save(u);
-            });
-            if (req.fullName() != null) learner.setFullName(req.fullName());
-            if (req.phone() != null) learner.setPhone(req.phone());
-            learner = userRepository.save(learner);
-        } else {
-            throw new IllegalArgumentException("User information required");
+    @Transactional
+    public Booking cancelBooking(Long bookingId) {
+        Booking booking = bookingRepository.lockWithSlotByIdIn(List.of(bookingId)).stream()
+                .findFirst()
+                .orElse(null);
+        if (booking == null) {
+            // No slot to give back
+            booking = bookingRepository.findById(bookingId).orElseThrow();
+            booking.setStatus(BookingStatus.CANCELLED);
+            booking.setHoldExpiresAt(null);
+            return booking;
+        }
+        if (booking.getStatus() == BookingStatus.CANCELLED) {
+            // Its slot was already given back and may have been booked again since
+            return booking;
         }
+        SlotStatus calendar = cancelAndRelease(booking);
+        if (calendar != null) {
+            availabilityService.updateSlotStatuses(Map.of(slotRef(booking.getSlot()), calendar));
+        }
+        return booking;
+    }
 
-        slot.setAvailable(false);
-        Booking booking = new Booking();
-        booking.setLearner(learner);
-        booking.setSlot(slot);
-        booking.setStatus(BookingStatus.PENDING); // PENDING for driver confirmation
-        if (req.paymentMethod() != null) {
-            booking.setPaymentMethod(req.paymentMethod().toUpperCase());
+    /**
+     * The instructor accepts the booking. The row is locked first, so a hold expiring at the same
+     * moment either finds it confirmed or has already cancelled it, never both.
+     */
+    @Transactional
+    public Booking confirmBooking(Long bookingId) {
+        Booking booking = bookingRepository.lockWithSlotByIdIn(List.of(bookingId)).stream()
+                .findFirst()
+                .orElseThrow();
+        if (booking.getStatus() == BookingStatus.CANCELLED) {
+            throw new IllegalStateException("Booking was cancelled or its hold expired");
         }
-        booking.setCardLast4(req.cardLast4());
-        slotRepository.save(slot);
-        return bookingRepository.save(booking);
+        confirm(booking);
+        availabilityService.updateSlotStatuses(Map.of(slotRef(booking.getSlot()), SlotStatus.LOCKED));
+        return booking;
     }
 
-    public List<Booking> bookingsForUser(Long userId) {
-        User learner = userRepository.findById(userId).orElseThrow();
-        return bookingRepository.findByLearner(learner);
+    /** The instructor turns the booking down; the slot goes to the next waitlisted learner, if any. */
+    @Transactional
+    public Booking rejectBooking(Long bookingId) {
+        Booking booking = bookingRepository.lockWithSlotByIdIn(List.of(bookingId)).stream()
+                .findFirst()
+                .orElseThrow();
+        if (booking.getStatus() == BookingStatus.CANCELLED) {
+            return booking;
+        }
+        SlotStatus calendar = cancelAndRelease(booking);
+        if (calendar != null) {
+            availabilityService.updateSlotStatuses(Map.of(slotRef(booking.getSlot()), calendar));
+        }
+        return booking;
     }
 
-    public List<Booking> allBookings() {
-        return bookingRepository.findAll();
+    /**
+     * Confirms many bookings in one transaction: the bookings and their slots are read (and
+     * locked) with one query, the booking updates go out as one JDBC batch and each calendar
+     * month is written once. Cancelled and unknown bookings are reported, not confirmed.
+     */
+    @Transactional
+    public BulkResult confirmBookings(Collection<Long> bookingIds) {
+        List<Booking> bookings = lockForBulk(bookingIds);
+        List<Long> updated = new ArrayList<>();
+        Map<Long, String> failed = new LinkedHashMap<>();
+        Map<AvailabilityService.SlotRef, SlotStatus> calendar = new HashMap<>();
+        for (Booking booking : bookings) {
+            if (booking.getStatus() == BookingStatus.CANCELLED) {
+                failed.put(booking.getId(), "Booking was cancelled or its hold expired");
+                continue;
+            }
+            confirm(booking);
+            calendar.put(slotRef(booking.getSlot()), SlotStatus.LOCKED);
+            updated.add(booking.getId());
+        }
+        reportMissing(bookingIds, bookings, failed);
+        availabilityService.updateSlotStatuses(calendar);
+        return new BulkResult(updated, failed);
     }
 
+    /** rejectBooking for many bookings, with the same batched reads and writes as confirmBookings. */
     @Transactional
-    public Booking cancelBooking(Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+    public BulkResult rejectBookings(Collection<Long> bookingIds) {
+        List<Booking> bookings = lockForBulk(bookingIds);
+        List<Long> updated = new ArrayList<>();
+        Map<Long, String> failed = new LinkedHashMap<>();
+        Map<AvailabilityService.SlotRef, SlotStatus> calendar = new HashMap<>();
+        for (Booking booking : bookings) {
+            if (booking.getStatus() == BookingStatus.CANCELLED) {
+                failed.put(booking.getId(), "Booking is already cancelled");
+                continue;
+            }
+            SlotStatus status = cancelAndRelease(booking);
+            if (status != null) {
+                calendar.put(slotRef(booking.getSlot()), status);
+            }
+            updated.add(booking.getId());
+        }
+        reportMissing(bookingIds, bookings, failed);
+        availabilityService.updateSlotStatuses(calendar);
+        return new BulkResult(updated, failed);
+    }
+
+    private List<Booking> lockForBulk(Collection<Long> bookingIds) {
+        if (bookingIds == null || bookingIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one booking id is required");
+        }
+        if (bookingIds.size() > MAX_BULK_BOOKINGS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_BOOKINGS + " bookings can be changed at once");
+        }
+        return bookingRepository.lockWithSlotByIdIn(new HashSet<>(bookingIds));
+    }
+
+    private static void confirm(Booking booking) {
+        booking.setStatus(BookingStatus.CONFIRMED);
+        booking.setHoldExpiresAt(null);
+        booking.getSlot().setAvailable(false);
+    }
+
+    private static void reportMissing(Collection<Long> bookingIds, List<Booking> found, Map<Long, String> failed) {
+        Set<Long> foundIds = new HashSet<>();
+        found.forEach(booking -> foundIds.add(booking.getId()));
+        for (Long id : bookingIds) {
+            if (!foundIds.contains(id)) {
+                failed.put(id, "Booking not found");
+            }
+        }
+    }
+
+    /**
+     * Cancels the booking and hands its slot to the next waitlisted learner, or frees it.
+     * Returns the state its calendar entry should move to, or null to leave it as it is.
+     */
+    private SlotStatus cancelAndRelease(Booking booking) {
+        BookingStatus previous = booking.getStatus();
         booking.setStatus(BookingStatus.CANCELLED);
+        booking.setHoldExpiresAt(null);
         LessonSlot slot = booking.getSlot();
-        if (slot != null) {
-            slot.setAvailable(true);
-            slotRepository.save(slot);
+        if (promoteWaitlisted(slot) != null) {
+            // A confirmed lesson goes back from locked to held while the instructor confirms the new learner
+            return previous == BookingStatus.CONFIRMED ? SlotStatus.BOOKED : null;
         }
-        return bookingRepository.save(booking);
+        slot.setAvailable(true);
+        availabilityStream.slotChanged(slot);
+        return SlotStatus.AVAILABLE;
+    }
+
+    private static AvailabilityService.SlotRef slotRef(LessonSlot slot) {
+        return new AvailabilityService.SlotRef(slot.getInstructor().getId(), slot.getStartTime().toLocalDate(),
+                AvailabilityService.timeSlotOf(slot.getStartTime()));
+    }
+
+    private Booking promoteWaitlisted(LessonSlot slot) {
+        Booking promoted = waitlistService.promote(slot, holdExpiryScheduler.expiryFromNow());
+        if (promoted != null) {
+            AfterCommit.run(() -> holdExpiryScheduler.schedule(promoted.getId(), promoted.getHoldExpiresAt()));
+        }
+        return promoted;
     }
 
-    @Transactional
     public Booking createBookingFromDriverAvailability(BookingController.CreateDriverAvailabilityBookingRequest req) {
+        Booking booking;
+        try {
+            booking = optimisticRetry.execute(() -> bookDriverAvailability(req));
+        } catch (DataIntegrityViolationException e) {
+            // Out of retries while another request kept materializing the same lesson; it holds the slot
+            if (violates(e, "uk_lesson_slot_instructor_start")) {
+                throw new IllegalStateException("Slot already booked", e);
+            }
+            throw e;
+        }
+        holdExpiryScheduler.schedule(booking.getId(), booking.getHoldExpiresAt());
+        return booking;
+    }
+
+    private static boolean violates(Throwable e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(constraint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Booking bookDriverAvailability(BookingController.CreateDriverAvailabilityBookingRequest req) {
         if (req.instructorId() == null) {
             throw new IllegalArgumentException("Instructor ID is required");
         }
@@ -160,116 +405,45 @@ public class BookingService {
         LocalDateTime startTime = LocalDateTime.of(date, time);
 
         // Check driver availability first
-        List<DriverAvailability> availabilities = driverAvailabilityRepository
-                .findByInstructorAndDayAndTimeSlot(instructor, date, req.timeSlot());
-        
-        if (availabilities.isEmpty()) {
-            // Try to find any availability for this instructor to help debug
-            List<DriverAvailability> allAvail = driverAvailabilityRepository.findByInstructor(instructor);
+        SlotStatus availability = availabilityService.status(instructor, date, req.timeSlot());
+        if (availability == null) {
             throw new IllegalStateException(
                 String.format("No availability found for instructor %d on date %s at time %s. " +
-                    "Total availabilities for this instructor: %d. " +
                     "Please ensure the admin has enabled this month and the date is available.",
-                    req.instructorId(), req.date(), req.timeSlot(), allAvail.size())
+                    req.instructorId(), req.date(), req.timeSlot())
             );
         }
-        
-        // Check if any availability is actually available
-        boolean hasAvailable = availabilities.stream()
-                .anyMatch(av -> "available".equals(av.getStatus()) && !av.isUnavailableDay());
-        
-        if (!hasAvailable) {
+        if (availability != SlotStatus.AVAILABLE) {
             throw new IllegalStateException("Time slot is not available");
         }
 
-        // Find or create a LessonSlot
+        // Find or create a LessonSlot; created as available, it is claimed below
         LessonSlot slot = slotRepository.findByInstructorAndStartTime(instructor, startTime)
-                .orElseGet(() -> {
-                    LessonSlot newSlot = new LessonSlot();
-                    newSlot.setInstructor(instructor);
-                    newSlot.setStartTime(startTime);
-                    // Use school's default values if available
-                    try {
-                        if (instructor.getSchool() != null) {
-                            newSlot.setDurationMinutes(instructor.getSchool().getDefaultLessonMinutes() != null 
-                                    ? instructor.getSchool().getDefaultLessonMinutes() : 60);
-                            newSlot.setPrice(instructor.getSchool().getPricePerLesson() != null 
-                                    ? instructor.getSchool().getPricePerLesson() : BigDecimal.valueOf(350));
-                        } else {
-                            newSlot.setDurationMinutes(60); // Default duration
-                            newSlot.setPrice(BigDecimal.valueOf(350)); // Default price
-                        }
-                    } catch (Exception e) {
-                        // Fallback to defaults if school access fails
-                        newSlot.setDurationMinutes(60);
-                        newSlot.setPrice(BigDecimal.valueOf(350));
-                    }
-                    newSlot.setAvailable(true); // Create as available, will be marked unavailable below
-                    return slotRepository.save(newSlot);
-                });
-
-        if (!slot.isAvailable()) {
-            throw new IllegalStateException("Slot already booked");
-        }
+                .orElseGet(() -> slotRepository.save(newSlot(instructor, startTime)));
 
-        // Update driver availability status to booked
-        for (DriverAvailability av : availabilities) {
-            if ("available".equals(av.getStatus()) && !av.isUnavailableDay()) {
-                av.setStatus("booked");
-                driverAvailabilityRepository.save(av);
-            }
-        }
+        // Resolved before any lock is taken, so the rows below are held for as few statements as possible
+        User learner = learnerResolver.resolve(req.userId(), req.email(), req.fullName(), req.phone());
 
-        // Create learner user
-        User learner;
-        if (req.userId() != null) {
-            // Try to find user by ID first
-            learner = userRepository.findById(req.userId()).orElse(null);
-            if (learner == null) {
-                // User ID doesn't exist, fall back to email if provided
-                if (req.email() != null && !req.email().isBlank()) {
-                    learner = userRepository.findByEmail(req.email()).orElseGet(() -> {
-                        User u = new User();
-                        u.setEmail(req.email());
-                        u.setFullName(req.fullName());
-                        u.setPhone(req.phone());
-                        u.setRole(UserRole.LEARNER);
-                        return userRepository.save(u);
-                    });
-                    if (req.fullName() != null) learner.setFullName(req.fullName());
-                    if (req.phone() != null) learner.setPhone(req.phone());
-                    learner = userRepository.save(learner);
-                } else {
-                    throw new IllegalArgumentException(
-                            "User not found with ID: " + req.userId() + ". Please provide email or login again.");
-                }
-            }
-        } else if (req.email() != null && !req.email().isBlank()) {
-            learner = userRepository.findByEmail(req.email()).orElseGet(() -> {
-                User u = new User();
-                u.setEmail(req.email());
-                u.setFullName(req.fullName());
-                u.setPhone(req.phone());
-                u.setRole(UserRole.LEARNER);
-                return userRepository.save(u);
-            });
-            if (req.fullName() != null) learner.setFullName(req.fullName());
-            if (req.phone() != null) learner.setPhone(req.phone());
-            learner = userRepository.save(learner);
-        } else {
-            throw new IllegalArgumentException("User information required (userId or email)");
+        // Claimed before the month is touched, so requests racing for this lesson queue on its row
+        // and fail here; bookings of other times in the month then take turns on the month row
+        if (!slot.isAvailable() || slotRepository.claim(slot.getId()) == 0) {
+            throw new IllegalStateException("Slot already booked");
+        }
+        if (!availabilityService.transition(instructor, date, req.timeSlot(), SlotStatus.AVAILABLE, SlotStatus.BOOKED)) {
+            throw new IllegalStateException("Time slot is not available");
         }
+        slot = slotRepository.findById(slot.getId()).orElseThrow();
+        availabilityStream.slotChanged(slot);
 
-        slot.setAvailable(false);
         Booking booking = new Booking();
         booking.setLearner(learner);
         booking.setSlot(slot);
         booking.setStatus(BookingStatus.PENDING); // PENDING for driver confirmation
+        booking.setHoldExpiresAt(holdExpiryScheduler.expiryFromNow());
         if (req.paymentMethod() != null) {
             booking.setPaymentMethod(req.paymentMethod().toUpperCase());
         }
         booking.setCardLast4(req.cardLast4());
-        slotRepository.save(slot);
         return bookingRepository.save(booking);
     }
 }
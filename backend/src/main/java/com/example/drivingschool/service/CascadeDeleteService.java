@@ -0,0 +1,213 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.repository.*;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deletes a school or instructor together with its bookings, lesson slots, availability and
+ * reviews. The synchronous path is a handful of bulk statements in one transaction; the
+ * asynchronous path deletes in small chunks, each in its own short transaction.
+ */
+@Service
+public class CascadeDeleteService {
+    public enum JobState { RUNNING, DONE, FAILED }
+
+    public record DeletionJob(String id,
+                              String target,
+                              JobState state,
+                              long deletedRows,
+                              LocalDateTime startedAt,
+                              LocalDateTime finishedAt,
+                              String error) {}
+
+    private static final int MAX_TRACKED_JOBS = 100;
+
+    private final SchoolRepository schoolRepository;
+    private final InstructorRepository instructorRepository;
+    private final LessonSlotRepository slotRepository;
+    private final BookingRepository bookingRepository;
+    private final ReviewRepository reviewRepository;
+    private final AvailabilityMonthRepository availabilityMonthRepository;
+    private final WaitlistService waitlistService;
+    private final CatalogCache catalogCache;
+    private final SchoolSearchIndex searchIndex;
+    private final ReviewSearchIndex reviewSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final Map<String, DeletionJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeletionJob> eldest) {
+            return size() > MAX_TRACKED_JOBS;
+        }
+    });
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cascade-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CascadeDeleteService(SchoolRepository schoolRepository,
+                                InstructorRepository instructorRepository,
+                                LessonSlotRepository slotRepository,
+                                BookingRepository bookingRepository,
+                                ReviewRepository reviewRepository,
+                                AvailabilityMonthRepository availabilityMonthRepository,
+                                WaitlistService waitlistService,
+                                CatalogCache catalogCache,
+                                SchoolSearchIndex searchIndex,
+                                ReviewSearchIndex reviewSearchIndex,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${admin.delete.chunk-size:500}") int chunkSize) {
+        this.schoolRepository = schoolRepository;
+        this.instructorRepository = instructorRepository;
+        this.slotRepository = slotRepository;
+        this.bookingRepository = bookingRepository;
+        this.reviewRepository = reviewRepository;
+        this.availabilityMonthRepository = availabilityMonthRepository;
+        this.waitlistService = waitlistService;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.reviewSearchIndex = reviewSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Transactional
+    public void deleteSchool(Long schoolId) {
+        schoolRepository.findById(schoolId).orElseThrow();
+        List<Long> instructorIds = instructorRepository.findIdsBySchoolId(schoolId);
+        deleteInstructorsInBulk(instructorIds);
+        reviewRepository.deleteBySchoolId(schoolId);
+        schoolRepository.deleteById(schoolId);
+        AfterCommit.run(() -> {
+            reviewSearchIndex.removeSchool(schoolId);
+            catalogCache.schoolChanged(schoolId);
+            searchIndex.refresh(schoolId);
+        });
+    }
+
+    @Transactional
+    public void deleteInstructor(Long instructorId) {
+        Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
+        deleteInstructorsInBulk(List.of(instructorId));
+        Long schoolId = instructor.getSchool() != null ? instructor.getSchool().getId() : null;
+        AfterCommit.run(() -> catalogCache.instructorsChanged(schoolId));
+    }
+
+    private void deleteInstructorsInBulk(List<Long> instructorIds) {
+        if (instructorIds.isEmpty()) {
+            return;
+        }
+        bookingRepository.deleteByInstructorIds(instructorIds);
+        waitlistService.instructorsDeleted(instructorIds);
+        slotRepository.deleteByInstructorIds(instructorIds);
+        availabilityMonthRepository.deleteByInstructorIds(instructorIds);
+        reviewRepository.detachInstructors(instructorIds);
+        instructorRepository.deleteAllByIdInBatch(instructorIds);
+    }
+
+    /** Starts a chunked background deletion of the school and returns its job for polling. */
+    public DeletionJob startSchoolDeletion(Long schoolId) {
+        schoolRepository.findById(schoolId).orElseThrow();
+        DeletionJob job = new DeletionJob(UUID.randomUUID().toString(), "school:" + schoolId,
+                JobState.RUNNING, 0, LocalDateTime.now(), null, null);
+        jobs.put(job.id(), job);
+        executor.submit(() -> runSchoolDeletion(job.id(), schoolId));
+        return job;
+    }
+
+    public Optional<DeletionJob> job(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void runSchoolDeletion(String jobId, Long schoolId) {
+        try {
+            for (Long instructorId : instructorRepository.findIdsBySchoolId(schoolId)) {
+                deleteInChunks(jobId, () -> bookingRepository.findIdsByInstructorId(instructorId, firstChunk()),
+                        bookingRepository::deleteAllByIdInBatch);
+                inTransaction(jobId, () -> waitlistService.instructorsDeleted(List.of(instructorId)));
+                deleteInChunks(jobId, () -> slotRepository.findIdsByInstructorId(instructorId, firstChunk()),
+                        slotRepository::deleteAllByIdInBatch);
+                inTransaction(jobId, () -> {
+                    reviewRepository.detachInstructors(List.of(instructorId));
+                    return availabilityMonthRepository.deleteByInstructorIds(List.of(instructorId))
+                            + deleteRow(instructorRepository, instructorId);
+                });
+            }
+            deleteInChunks(jobId, () -> reviewRepository.findIdsBySchoolId(schoolId, firstChunk()),
+                    reviewRepository::deleteAllByIdInBatch);
+            reviewSearchIndex.removeSchool(schoolId);
+            inTransaction(jobId, () -> deleteRow(schoolRepository, schoolId));
+            update(jobId, job -> new DeletionJob(job.id(), job.target(), JobState.DONE, job.deletedRows(),
+                    job.startedAt(), LocalDateTime.now(), null));
+        } catch (RuntimeException e) {
+            update(jobId, job -> new DeletionJob(job.id(), job.target(), JobState.FAILED, job.deletedRows(),
+                    job.startedAt(), LocalDateTime.now(), e.getMessage()));
+        } finally {
+            // Also after a failed run, since some of the school's rows may already be gone
+            catalogCache.schoolChanged(schoolId);
+            searchIndex.refresh(schoolId);
+        }
+    }
+
+    private void deleteInChunks(String jobId, Supplier<List<Long>> nextChunk,
+                                Consumer<List<Long>> delete) {
+        while (true) {
+            int deleted = inTransaction(jobId, () -> {
+                List<Long> ids = nextChunk.get();
+                if (!ids.isEmpty()) {
+                    delete.accept(ids);
+                }
+                return ids.size();
+            });
+            if (deleted < chunkSize) {
+                return;
+            }
+        }
+    }
+
+    private int inTransaction(String jobId, Supplier<Integer> work) {
+        Integer deleted = transactionTemplate.execute(status -> work.get());
+        int count = deleted != null ? deleted : 0;
+        update(jobId, job -> new DeletionJob(job.id(), job.target(), job.state(), job.deletedRows() + count,
+                job.startedAt(), job.finishedAt(), job.error()));
+        return count;
+    }
+
+    private static <T> int deleteRow(JpaRepository<T, Long> repository, Long id) {
+        repository.deleteAllByIdInBatch(List.of(id));
+        return 1;
+    }
+
+    private Pageable firstChunk() {
+        // Deleted rows drop out of the query, so the first page is always the next chunk
+        return PageRequest.of(0, chunkSize);
+    }
+
+    private void update(String jobId, UnaryOperator<DeletionJob> change) {
+        jobs.computeIfPresent(jobId, (id, job) -> change.apply(job));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.ReviewRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through caches for the public school pages (search is served by SchoolSearchIndex).
+ * Entries expire after a TTL as a backstop, but every admin write evicts the keys it touches once
+ * its transaction commits. Hit/miss counts are published as the standard cache.* meters.
+ */
+@Component
+public class CatalogCache {
+    private final Cache<Long, School> schools;
+    private final Cache<Long, List<InstructorRepository.InstructorView>> instructorsBySchool;
+    private final Cache<String, CursorPage<ReviewRepository.ReviewView>> firstReviewPages;
+
+    public CatalogCache(MeterRegistry meterRegistry,
+                        @Value("${catalog.cache.max-size:1000}") long maxSize,
+                        @Value("${catalog.cache.ttl-seconds:600}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.schools = build(meterRegistry, "schools", maxSize, ttl);
+        this.instructorsBySchool = build(meterRegistry, "schoolInstructors", maxSize, ttl);
+        this.firstReviewPages = build(meterRegistry, "schoolReviews", maxSize, ttl);
+    }
+
+    public School school(Long id, Function<Long, School> loader) {
+        return schools.get(id, loader);
+    }
+
+    public List<InstructorRepository.InstructorView> instructors(Long schoolId,
+                                                                 Function<Long, List<InstructorRepository.InstructorView>> loader) {
+        return instructorsBySchool.get(schoolId, loader);
+    }
+
+    public CursorPage<ReviewRepository.ReviewView> firstReviewPage(Long schoolId, ReviewService.ReviewSort sort,
+                                                                  Supplier<CursorPage<ReviewRepository.ReviewView>> loader) {
+        return firstReviewPages.get(reviewPageKey(schoolId, sort), key -> loader.get());
+    }
+
+    /** A school was created, edited or deleted; its instructor list goes too. */
+    public void schoolChanged(Long schoolId) {
+        if (schoolId != null) {
+            AfterCommit.run(() -> {
+                schools.invalidate(schoolId);
+                instructorsBySchool.invalidate(schoolId);
+                invalidateReviewPages(schoolId);
+            });
+        }
+    }
+
+    public void instructorsChanged(Long schoolId) {
+        if (schoolId != null) {
+            AfterCommit.run(() -> instructorsBySchool.invalidate(schoolId));
+        }
+    }
+
+    public void reviewsChanged(Long schoolId) {
+        if (schoolId != null) {
+            AfterCommit.run(() -> invalidateReviewPages(schoolId));
+        }
+    }
+
+    private void invalidateReviewPages(Long schoolId) {
+        for (ReviewService.ReviewSort sort : ReviewService.ReviewSort.values()) {
+            firstReviewPages.invalidate(reviewPageKey(schoolId, sort));
+        }
+    }
+
+    private static String reviewPageKey(Long schoolId, ReviewService.ReviewSort sort) {
+        return schoolId + ":" + sort;
+    }
+
+    private static <K, V> Cache<K, V> build(MeterRegistry meterRegistry, String name, long maxSize, Duration ttl) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.SlotStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams bookings, availability and reviews straight from a forward-only JDBC cursor to an
+ * output stream, one row at a time, so memory use does not grow with the size of the export.
+ */
+@Service
+public class ExportService {
+    public enum Format { CSV, NDJSON }
+
+    public record ExportFilter(LocalDate from, LocalDate to, Long schoolId) {}
+
+    private static final String[] BOOKING_COLUMNS = {
+            "id", "status", "created_at", "payment_method", "start_time", "duration_minutes", "price",
+            "instructor_id", "instructor_name", "school_id", "school_name",
+            "learner_name", "learner_email", "learner_phone"};
+    private static final String[] REVIEW_COLUMNS = {
+            "id", "rating", "comment", "created_at", "school_id", "school_name", "reviewer_name"};
+    private static final String[] AVAILABILITY_COLUMNS = {
+            "instructor_id", "instructor_name", "school_id", "month", "day", "time_slot", "status", "unavailable_day"};
+
+    private final DataSource dataSource;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private volatile JdbcTemplate streamingTemplate;
+
+    public ExportService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBookings(ExportFilter filter, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "select b.id, b.status, b.created_at, b.payment_method, s.start_time, s.duration_minutes, s.price, " +
+                "i.id, i.name, sc.id, sc.name, u.full_name, u.email, u.phone " +
+                "from booking b " +
+                "join lesson_slot s on s.id = b.slot_id " +
+                "join instructor i on i.id = s.instructor_id " +
+                "left join school sc on sc.id = i.school_id " +
+                "left join users u on u.id = b.learner_id where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendRange(sql, args, "s.start_time", filter);
+        appendSchool(sql, args, "i.school_id", filter);
+        sql.append(" order by b.id");
+        stream(sql.toString(), args, BOOKING_COLUMNS, format, out, (rs, rows) -> rows.write(values(rs, BOOKING_COLUMNS.length)));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportReviews(ExportFilter filter, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "select r.id, r.rating, r.comment, r.created_at, sc.id, sc.name, u.full_name " +
+                "from review r " +
+                "left join school sc on sc.id = r.school_id " +
+                "left join users u on u.id = r.reviewer_id where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendRange(sql, args, "r.created_at", filter);
+        appendSchool(sql, args, "r.school_id", filter);
+        sql.append(" order by r.id");
+        stream(sql.toString(), args, REVIEW_COLUMNS, format, out, (rs, rows) -> rows.write(values(rs, REVIEW_COLUMNS.length)));
+    }
+
+    /** One row per open slot (or per day off), expanded from each month bitmap as it streams by. */
+    @Transactional(readOnly = true)
+    public void exportAvailability(ExportFilter filter, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(
+                "select m.instructor_id, i.name, i.school_id, m.availability_month, m.slot_states " +
+                "from availability_month m join instructor i on i.id = m.instructor_id where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.from() != null) {
+            sql.append(" and m.availability_month >= ?");
+            args.add(YearMonth.from(filter.from()).toString());
+        }
+        if (filter.to() != null) {
+            sql.append(" and m.availability_month <= ?");
+            args.add(YearMonth.from(filter.to()).toString());
+        }
+        appendSchool(sql, args, "i.school_id", filter);
+        sql.append(" order by m.instructor_id, m.availability_month");
+        stream(sql.toString(), args, AVAILABILITY_COLUMNS, format, out, (rs, rows) -> {
+            Object instructorId = rs.getObject(1);
+            Object instructorName = rs.getObject(2);
+            Object schoolId = rs.getObject(3);
+            String month = rs.getString(4);
+            YearMonth yearMonth = YearMonth.parse(month);
+            AvailabilityBitmap bitmap = AvailabilityBitmap.decode(rs.getString(5), yearMonth.lengthOfMonth());
+            for (int day = 1; day <= bitmap.lengthOfMonth(); day++) {
+                LocalDate date = yearMonth.atDay(day);
+                if ((filter.from() != null && date.isBefore(filter.from()))
+                        || (filter.to() != null && date.isAfter(filter.to()))) {
+                    continue;
+                }
+                if (bitmap.isDayOff(day)) {
+                    rows.write(new Object[]{instructorId, instructorName, schoolId, month, date, "00:00",
+                            SlotStatus.UNAVAILABLE.value(), true});
+                    continue;
+                }
+                for (int slot = 0; slot < AvailabilityBitmap.SLOTS_PER_DAY; slot++) {
+                    SlotStatus status = bitmap.get(day, slot);
+                    if (status != null) {
+                        rows.write(new Object[]{instructorId, instructorName, schoolId, month, date,
+                                AvailabilityService.TIME_SLOTS.get(slot), status.value(), false});
+                    }
+                }
+            }
+        });
+    }
+
+    private interface RowMapper {
+        void map(ResultSet rs, RowWriter rows) throws SQLException, IOException;
+    }
+
+    private void stream(String sql, List<Object> args, String[] columns, Format format,
+                        OutputStream out, RowMapper mapper) throws IOException {
+        RowWriter rows = format == Format.NDJSON ? new NdjsonWriter(out, columns) : new CsvWriter(out, columns);
+        RowCallbackHandler handler = rs -> {
+            try {
+                mapper.map(rs, rows);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            streamingTemplate().query(sql, handler, args.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.flush();
+    }
+
+    private static void appendRange(StringBuilder sql, List<Object> args, String column, ExportFilter filter) {
+        if (filter.from() != null) {
+            sql.append(" and ").append(column).append(" >= ?");
+            args.add(filter.from().atStartOfDay());
+        }
+        if (filter.to() != null) {
+            sql.append(" and ").append(column).append(" < ?");
+            args.add(filter.to().plusDays(1).atStartOfDay());
+        }
+    }
+
+    private static void appendSchool(StringBuilder sql, List<Object> args, String column, ExportFilter filter) {
+        if (filter.schoolId() != null) {
+            sql.append(" and ").append(column).append(" = ?");
+            args.add(filter.schoolId());
+        }
+    }
+
+    private static Object[] values(ResultSet rs, int count) throws SQLException {
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            Object value = rs.getObject(i + 1);
+            // Timestamps go out in the same ISO form the JSON API uses
+            values[i] = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : value;
+        }
+        return values;
+    }
+
+    /**
+     * MySQL only streams rows with a fetch size of Integer.MIN_VALUE; PostgreSQL and H2 use a
+     * server-side cursor with a regular fetch size as long as the call runs in a transaction.
+     */
+    private JdbcTemplate streamingTemplate() {
+        JdbcTemplate template = streamingTemplate;
+        if (template == null) {
+            template = new JdbcTemplate(dataSource);
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            } catch (Exception e) {
+                product = "";
+            }
+            template.setFetchSize(product.toLowerCase().contains("mysql") ? Integer.MIN_VALUE : 500);
+            streamingTemplate = template;
+        }
+        return template;
+    }
+
+    private interface RowWriter {
+        void write(Object[] values) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out, String[] columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            write(columns);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writer.write(escape(values[i].toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+        private final String[] columns;
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out, String[] columns) throws IOException {
+            this.columns = columns;
+            this.generator = jsonFactory.createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNullField(columns[i]);
+                } else if (value instanceof Number number) {
+                    generator.writeFieldName(columns[i]);
+                    generator.writeNumber(number.toString());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBooleanField(columns[i], bool);
+                } else {
+                    generator.writeStringField(columns[i], value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.Booking;
+import com.example.drivingschool.repository.BookingRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases PENDING bookings whose hold ran out. Holds live in an in-memory timing wheel, so a
+ * tick only touches the bookings that are due; outstanding holds are reloaded on startup.
+ */
+@Component
+public class HoldExpiryScheduler {
+    private static final Logger log = LoggerFactory.getLogger(HoldExpiryScheduler.class);
+
+    private final BookingHoldService bookingHoldService;
+    private final Duration holdTtl;
+    private final long tickMillis;
+    private final int batchSize;
+    private final TimingWheel wheel;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hold-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HoldExpiryScheduler(BookingHoldService bookingHoldService,
+                               @Value("${booking.hold.ttl-minutes:1440}") long ttlMinutes,
+                               @Value("${booking.hold.tick-seconds:30}") long tickSeconds,
+                               @Value("${booking.hold.wheel-size:1024}") int wheelSize,
+                               @Value("${booking.hold.batch-size:100}") int batchSize) {
+        this.bookingHoldService = bookingHoldService;
+        this.holdTtl = Duration.ofMinutes(ttlMinutes);
+        this.tickMillis = TimeUnit.SECONDS.toMillis(tickSeconds);
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel(wheelSize, tickMillis, System.currentTimeMillis());
+    }
+
+    public LocalDateTime expiryFromNow() {
+        return LocalDateTime.now().plus(holdTtl);
+    }
+
+    public void schedule(Long bookingId, LocalDateTime expiresAt) {
+        if (bookingId != null && expiresAt != null) {
+            wheel.add(bookingId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<BookingRepository.HoldView> holds = bookingHoldService.outstandingHolds();
+        for (BookingRepository.HoldView hold : holds) {
+            schedule(hold.getId(), hold.getHoldExpiresAt());
+        }
+        log.info("Recovered {} outstanding booking holds", holds.size());
+        executor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void tick() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = new ArrayList<>(due.subList(from, Math.min(due.size(), from + batchSize)));
+            try {
+                // Slots handed to a waitlisted learner start a fresh hold
+                for (Booking promoted : bookingHoldService.releaseExpired(batch, expiryFromNow())) {
+                    schedule(promoted.getId(), promoted.getHoldExpiresAt());
+                }
+            } catch (RuntimeException e) {
+                // Most likely a concurrent confirm/reject; try the batch again on the next tick
+                log.warn("Releasing {} expired holds failed, retrying next tick: {}", batch.size(), e.getMessage());
+                long retryAt = System.currentTimeMillis() + tickMillis;
+                batch.forEach(id -> wheel.add(id, retryAt));
+            }
+        }
+    }
+}
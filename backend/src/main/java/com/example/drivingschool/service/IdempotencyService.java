@@ -0,0 +1,270 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.IdempotencyRecord;
+import com.example.drivingschool.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Replays the original response when a client retries a booking request with the same
+ * Idempotency-Key, without touching slots again. The key row is inserted before the booking
+ * runs, so the primary key decides which attempt books, across instances as well. Completed
+ * keys are answered from a bounded in-memory cache; the table behind it covers restarts. A claim
+ * left behind by an instance that died mid-request is taken over once its lease runs out.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_MILLIS = 50;
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private record Stored(String requestHash, int status, String body, LocalDateTime claimedAt) {
+        boolean pending() {
+            return status == IdempotencyRecord.PENDING;
+        }
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration wait;
+    private final Duration lease;
+    private final Semaphore waiters;
+    private final Cache<String, Stored> recent;
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "idempotency-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.cache.max-size:10000}") long maxSize,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.wait-seconds:10}") long waitSeconds,
+                              @Value("${idempotency.lease-seconds:20}") long leaseSeconds,
+                              @Value("${idempotency.max-waiters:32}") int maxWaiters) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.wait = Duration.ofSeconds(waitSeconds);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.waiters = new Semaphore(maxWaiters);
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purger.scheduleWithFixedDelay(this::purge, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Runs action unless endpoint already answered this key, in which case that answer is replayed.
+     * A retry that arrives while the first attempt still holds the key waits for its answer, and
+     * gets 409 if none comes within idempotency.wait-seconds; beyond idempotency.max-waiters
+     * such retries get the 409 at once. Only successful answers are remembered; after a rejection
+     * the key is released and the client may retry with it.
+     */
+    public ResponseEntity<?> execute(String key, String endpoint, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    HEADER + " must be at most " + MAX_KEY_LENGTH + " characters"));
+        }
+        String id = endpoint + " " + key;
+        String requestHash = hash(request);
+        long deadline = System.nanoTime() + wait.toNanos();
+        boolean waiting = false;
+        try {
+            while (true) {
+                Stored stored = lookup(id);
+                if (stored == null) {
+                    LocalDateTime claimedAt = now();
+                    if (claim(id, requestHash, claimedAt)) {
+                        return run(id, requestHash, claimedAt, action);
+                    }
+                    // Another attempt claimed the key between the lookup and the insert
+                    stored = lookup(id);
+                }
+                if (stored != null && !stored.requestHash().equals(requestHash)) {
+                    return ResponseEntity.unprocessableEntity().body(Map.of("error",
+                            HEADER + " was already used for a different request"));
+                }
+                if (stored != null && !stored.pending()) {
+                    return ResponseEntity.status(stored.status())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Idempotent-Replayed", "true")
+                            .body(stored.body());
+                }
+                if (stored != null && stored.claimedAt().isBefore(now().minus(lease))) {
+                    LocalDateTime claimedAt = now();
+                    if (repository.takeOver(id, stored.claimedAt(), claimedAt) == 1) {
+                        log.warn("Idempotency key {} was claimed at {} and never answered, running it again", id,
+                                stored.claimedAt());
+                        return run(id, requestHash, claimedAt, action);
+                    }
+                    // Answered or taken over meanwhile
+                    continue;
+                }
+                if (!waiting) {
+                    if (!waiters.tryAcquire()) {
+                        return stillProcessing();
+                    }
+                    waiting = true;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    return stillProcessing();
+                }
+                try {
+                    Thread.sleep(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for " + HEADER + " " + key, e);
+                }
+            }
+        } finally {
+            if (waiting) {
+                waiters.release();
+            }
+        }
+    }
+
+    private static ResponseEntity<?> stillProcessing() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "A request with this " + HEADER + " is still being processed"));
+    }
+
+    // Truncated to what the column keeps, so the claim can be matched on it later
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private boolean claim(String id, String requestHash, LocalDateTime claimedAt) {
+        try {
+            repository.claim(id, requestHash, claimedAt);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private ResponseEntity<?> run(String id, String requestHash, LocalDateTime claimedAt,
+                                  Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            release(id, claimedAt);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            release(id, claimedAt);
+            return response;
+        }
+        Object body = response.getBody();
+        Stored stored = new Stored(requestHash, response.getStatusCode().value(),
+                body instanceof String text ? text : toJson(body), claimedAt);
+        // If this fails the key stays claimed until its lease runs out and a retry takes it over
+        if (repository.complete(id, claimedAt, stored.status(), stored.body()) == 0) {
+            log.warn("Idempotency key {} was taken over before its first request answered", id);
+            return response;
+        }
+        recent.put(id, stored);
+        return response;
+    }
+
+    private void release(String id, LocalDateTime claimedAt) {
+        try {
+            repository.release(id, claimedAt);
+        } catch (RuntimeException e) {
+            log.warn("Releasing idempotency key {} failed, it stays claimed until it expires: {}", id, e.getMessage());
+        }
+    }
+
+    private Stored lookup(String id) {
+        Stored stored = recent.getIfPresent(id);
+        if (stored != null) {
+            return stored;
+        }
+        IdempotencyRecord record = repository.findById(id).orElse(null);
+        if (record == null) {
+            return null;
+        }
+        if (record.getCreatedAt().isBefore(LocalDateTime.now().minus(ttl))) {
+            // Expired but not purged yet; clear it so the key can be claimed again
+            repository.deleteIfCreatedBefore(id, LocalDateTime.now().minus(ttl));
+            return null;
+        }
+        stored = new Stored(record.getRequestHash(), record.getStatusCode(), record.getResponseBody(),
+                record.getCreatedAt());
+        if (!stored.pending()) {
+            recent.put(id, stored);
+        }
+        return stored;
+    }
+
+    private void purge() {
+        try {
+            repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        } catch (RuntimeException e) {
+            log.warn("Purging expired idempotency keys failed, retrying next run: {}", e.getMessage());
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(toJson(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.User;
+import com.example.drivingschool.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Turns the learner details on a booking request into a user. Learners seen recently are
+ * resolved from an email -> user cache without touching the database, unless their name or
+ * phone changed; new learners are written with one upsert, so two first-time bookings with the
+ * same email cannot collide on the unique constraint.
+ */
+@Component
+public class LearnerResolver {
+    private record Known(Long id, String fullName, String phone) {}
+
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final Cache<String, Known> byEmail;
+
+    public LearnerResolver(UserRepository userRepository,
+                           EntityManager entityManager,
+                           @Value("${learner.cache.max-size:10000}") long maxSize,
+                           @Value("${learner.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * The user with userId if there is one, otherwise the learner with this email, created or
+     * updated with the given name and phone. Null name or phone leaves the stored value alone.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public User resolve(Long userId, String email, String fullName, String phone) {
+        if (userId != null && userRepository.existsById(userId)) {
+            return entityManager.getReference(User.class, userId);
+        }
+        if (email == null || email.isBlank()) {
+            throw new IllegalArgumentException(userId != null
+                    ? "User not found with ID: " + userId + ". Please provide email or login again."
+                    : "User information required (userId or email)");
+        }
+        Known known = byEmail.getIfPresent(email);
+        if (known != null) {
+            String newName = fullName != null ? fullName : known.fullName();
+            String newPhone = phone != null ? phone : known.phone();
+            if (!Objects.equals(newName, known.fullName()) || !Objects.equals(newPhone, known.phone())) {
+                entityManager.createQuery("update User u set u.fullName = :fullName, u.phone = :phone where u.id = :id")
+                        .setParameter("fullName", newName)
+                        .setParameter("phone", newPhone)
+                        .setParameter("id", known.id())
+                        .executeUpdate();
+            }
+            remember(email, new Known(known.id(), newName, newPhone));
+            return entityManager.getReference(User.class, known.id());
+        }
+        upsert(email, fullName, phone);
+        Object[] row = (Object[]) entityManager.createQuery(
+                        "select u.id, u.fullName, u.phone from User u where u.email = :email")
+                .setParameter("email", email)
+                .getSingleResult();
+        Long id = (Long) row[0];
+        remember(email, new Known(id, (String) row[1], (String) row[2]));
+        return entityManager.getReference(User.class, id);
+    }
+
+    /** Call when a user's details change outside the booking path. */
+    public void forget(String email) {
+        if (email != null) {
+            byEmail.invalidate(email);
+        }
+    }
+
+    private void remember(String email, Known known) {
+        // Only once the insert or update is committed; a rolled back booking must not leave a ghost id behind
+        AfterCommit.run(() -> byEmail.put(email, known));
+    }
+
+    private void upsert(String email, String fullName, String phone) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        Dialect dialect = factory.getJdbcServices().getDialect();
+        // Same pooled generator as entity inserts, so the id never clashes with one Hibernate hands out
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        Object id = ((IdentifierGenerator) persister.getGenerator()).generate(session, null);
+        String sql;
+        if (dialect instanceof PostgreSQLDialect) {
+            sql = "insert into users (id, email, full_name, phone, role) values (:id, :email, :fullName, :phone, 'LEARNER') " +
+                  "on conflict (email) do update set " +
+                  "full_name = coalesce(excluded.full_name, users.full_name), phone = coalesce(excluded.phone, users.phone) " +
+                  "where users.full_name is distinct from coalesce(excluded.full_name, users.full_name) " +
+                  "or users.phone is distinct from coalesce(excluded.phone, users.phone)";
+        } else if (dialect instanceof MySQLDialect) {
+            // MySQL leaves the row untouched when the new values equal the old ones
+            sql = "insert into users (id, email, full_name, phone, role) values (:id, :email, :fullName, :phone, 'LEARNER') " +
+                  "on duplicate key update " +
+                  "full_name = coalesce(values(full_name), full_name), phone = coalesce(values(phone), phone)";
+        } else {
+            sql = "merge into users u using (values (cast(:id as bigint), cast(:email as varchar(255)), " +
+                  "cast(:fullName as varchar(255)), cast(:phone as varchar(255)))) v (id, email, full_name, phone) " +
+                  "on u.email = v.email " +
+                  "when matched and (coalesce(v.full_name, u.full_name) is distinct from u.full_name " +
+                  "or coalesce(v.phone, u.phone) is distinct from u.phone) then update set " +
+                  "full_name = coalesce(v.full_name, u.full_name), phone = coalesce(v.phone, u.phone) " +
+                  "when not matched then insert (id, email, full_name, phone, role) " +
+                  "values (v.id, v.email, v.full_name, v.phone, 'LEARNER')";
+        }
+        entityManager.createNativeQuery(sql)
+                .setParameter("id", id)
+                .setParameter("email", email)
+                .setParameter("fullName", fullName)
+                .setParameter("phone", phone)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.drivingschool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of work in its own transaction and re-runs it when it loses an optimistic
+ * version check (or an insert race) to a concurrent booking, up to a fixed number of attempts.
+ */
+@Component
+public class OptimisticRetry {
+    private static final HibernateJpaDialect DIALECT = new HibernateJpaDialect();
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           @Value("${booking.retry.max-attempts:4}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                RuntimeException failure = translate(e);
+                if (!(failure instanceof ConcurrencyFailureException || failure instanceof DataIntegrityViolationException)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    if (failure instanceof DataIntegrityViolationException) {
+                        throw failure;
+                    }
+                    throw new IllegalStateException("Slot is busy, please try again", failure);
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Queries run on the EntityManager itself flush pending writes untranslated, version conflicts included
+    private static RuntimeException translate(RuntimeException e) {
+        RuntimeException translated = DIALECT.translateExceptionIfPossible(e);
+        return translated != null ? translated : e;
+    }
+
+    private static void backOff(int attempt) {
+        // Small jittered pause so the retrying transactions do not collide again in lockstep
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying booking", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.Review;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the review count, sum and star histogram of schools and instructors in step with their
+ * reviews. Each change is a single in-place UPDATE in the caller's transaction, so concurrent
+ * reviews never lose each other's increments and the average is never recomputed from a scan.
+ */
+@Service
+public class RatingAggregateService {
+    private final EntityManager entityManager;
+    private final CatalogCache catalogCache;
+    private final SchoolSearchIndex searchIndex;
+
+    public RatingAggregateService(EntityManager entityManager, CatalogCache catalogCache,
+                                  SchoolSearchIndex searchIndex) {
+        this.entityManager = entityManager;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reviewAdded(Review review) {
+        apply(review, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reviewRemoved(Review review) {
+        apply(review, -1);
+    }
+
+    private void apply(Review review, int delta) {
+        int stars = review.getRating();
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        if (review.getSchool() != null) {
+            Long schoolId = review.getSchool().getId();
+            update("school", schoolId, stars, delta);
+            refresh(review.getSchool());
+            catalogCache.schoolChanged(schoolId);
+            searchIndex.refresh(schoolId);
+        }
+        if (review.getInstructor() != null) {
+            update("instructor", review.getInstructor().getId(), stars, delta);
+            refresh(review.getInstructor());
+            if (review.getSchool() != null) {
+                catalogCache.instructorsChanged(review.getSchool().getId());
+            }
+        }
+    }
+
+    private void refresh(Object entity) {
+        // The UPDATE bypassed the persistence context; reload so the returned review shows the new totals
+        if (entityManager.contains(entity)) {
+            entityManager.refresh(entity);
+        }
+    }
+
+    private void update(String table, Long id, int stars, int delta) {
+        // rating is assigned first: MySQL evaluates SET left to right against already-updated columns
+        String histogram = "stars_" + stars;
+        entityManager.createNativeQuery("update " + table + " set " +
+                        "rating = case when review_count + :delta > 0 " +
+                        "then (rating_sum + :points) * 1.0 / (review_count + :delta) else rating end, " +
+                        "review_count = review_count + :delta, " +
+                        "rating_sum = rating_sum + :points, " +
+                        histogram + " = " + histogram + " + :delta " +
+                        "where id = :id")
+                .setParameter("delta", delta)
+                .setParameter("points", delta * stars)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.repository.ReviewRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over review comments, ranked with BM25. A query only walks the
+ * postings of its own words, so "patient nervous highway" costs the same however many reviews
+ * exist. Loaded in id-ordered chunks at startup and kept current as reviews are written.
+ */
+@Component
+public class ReviewSearchIndex {
+    public record Hit(Long reviewId, double score) {}
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int LOAD_CHUNK = 1000;
+
+    private record Doc(Long schoolId, int length, String[] terms) {}
+
+    private final ReviewRepository reviewRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    /** term -> (review id -> occurrences in that comment) */
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Set<Long>> bySchool = new HashMap<>();
+    private long totalLength;
+    private volatile boolean loaded;
+
+    public ReviewSearchIndex(ReviewRepository reviewRepository) {
+        this.reviewRepository = reviewRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            bySchool.clear();
+            totalLength = 0;
+            long after = 0;
+            while (true) {
+                List<ReviewRepository.ReviewText> chunk =
+                        reviewRepository.findTextsAfter(after, PageRequest.of(0, LOAD_CHUNK));
+                for (ReviewRepository.ReviewText review : chunk) {
+                    add(review.getId(), review.getSchoolId(), review.getComment());
+                }
+                if (chunk.size() < LOAD_CHUNK) {
+                    break;
+                }
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Long reviewId, Long schoolId, String comment) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(reviewId);
+                add(reviewId, schoolId, comment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeSchool(Long schoolId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                Set<Long> ids = bySchool.get(schoolId);
+                if (ids != null) {
+                    new ArrayList<>(ids).forEach(this::remove);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /** Best matching reviews first; any query word may match. schoolId narrows to one school. */
+    public List<Hit> search(String text, Long schoolId, int limit) {
+        if (!loaded) {
+            rebuild();
+        }
+        List<String> terms = TextTokens.tokenize(text);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (docs.isEmpty()) {
+                return List.of();
+            }
+            int n = docs.size();
+            double avgLength = (double) totalLength / n;
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Integer> matches = postings.get(term);
+                if (matches == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (n - matches.size() + 0.5) / (matches.size() + 0.5));
+                matches.forEach((id, tf) -> {
+                    Doc doc = docs.get(id);
+                    if (schoolId != null && !schoolId.equals(doc.schoolId())) {
+                        return;
+                    }
+                    double norm = tf + K1 * (1 - B + B * doc.length() / avgLength);
+                    scores.merge(id, idf * tf * (K1 + 1) / norm, Double::sum);
+                });
+            }
+            // Keep only the top hits in a small min-heap rather than sorting every match
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score)
+                    .thenComparing(Hit::reviewId));
+            scores.forEach((id, score) -> {
+                top.add(new Hit(id, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparing(Hit::reviewId, Comparator.reverseOrder()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, Long schoolId, String comment) {
+        List<String> words = TextTokens.words(comment);
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : words) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        docs.put(id, new Doc(schoolId, words.size(), counts.keySet().toArray(new String[0])));
+        totalLength += words.size();
+        counts.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+        if (schoolId != null) {
+            bySchool.computeIfAbsent(schoolId, s -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length();
+        for (String term : doc.terms()) {
+            Map<Long, Integer> matches = postings.get(term);
+            if (matches != null && matches.remove(id) != null && matches.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        if (doc.schoolId() != null) {
+            Set<Long> ids = bySchool.get(doc.schoolId());
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                bySchool.remove(doc.schoolId());
+            }
+        }
+    }
+}
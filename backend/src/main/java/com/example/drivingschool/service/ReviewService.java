@@ -0,0 +1,167 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.Review;
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.model.User;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.ReviewRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import com.example.drivingschool.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class ReviewService {
+    public enum ReviewSort { NEWEST, HIGHEST, LOWEST }
+
+    private final ReviewRepository reviewRepository;
+    private final SchoolRepository schoolRepository;
+    private final UserRepository userRepository;
+    private final InstructorRepository instructorRepository;
+    private final RatingAggregateService ratingAggregateService;
+    private final CatalogCache catalogCache;
+    private final ReviewSearchIndex reviewSearchIndex;
+    private final EntityManager entityManager;
+
+    public ReviewService(ReviewRepository reviewRepository,
+                         SchoolRepository schoolRepository,
+                         UserRepository userRepository,
+                         InstructorRepository instructorRepository,
+                         RatingAggregateService ratingAggregateService,
+                         CatalogCache catalogCache,
+                         ReviewSearchIndex reviewSearchIndex,
+                         EntityManager entityManager) {
+        this.reviewRepository = reviewRepository;
+        this.schoolRepository = schoolRepository;
+        this.userRepository = userRepository;
+        this.instructorRepository = instructorRepository;
+        this.ratingAggregateService = ratingAggregateService;
+        this.catalogCache = catalogCache;
+        this.reviewSearchIndex = reviewSearchIndex;
+        this.entityManager = entityManager;
+    }
+
+    /** Saves the review and folds it into the school's (and instructor's) rating in the same transaction. */
+    @Transactional
+    public ReviewRepository.ReviewView createReview(Long schoolId, Long userId, Long instructorId, int rating, String comment) {
+        if (rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        School school = schoolRepository.findById(schoolId).orElseThrow();
+        User user = userRepository.findById(userId).orElseThrow();
+        Review review = new Review();
+        review.setSchool(school);
+        review.setReviewer(user);
+        review.setRating(rating);
+        review.setComment(comment);
+        if (instructorId != null) {
+            Instructor instructor = instructorRepository.findById(instructorId).orElseThrow();
+            if (instructor.getSchool() == null || !schoolId.equals(instructor.getSchool().getId())) {
+                throw new IllegalArgumentException("Instructor does not belong to this school");
+            }
+            review.setInstructor(instructor);
+        }
+        Review saved = reviewRepository.save(review);
+        ratingAggregateService.reviewAdded(saved);
+        catalogCache.reviewsChanged(schoolId);
+        reviewSearchIndex.put(saved.getId(), schoolId, comment);
+        return reviewRepository.findViewsByIdIn(List.of(saved.getId())).get(0);
+    }
+
+    /**
+     * One page of a school's reviews in the given order. The cursor is the id of the last review
+     * on the previous page; for the rating orders its rating is looked up to continue the keyset.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewRepository.ReviewView> schoolReviews(Long schoolId, ReviewSort sort,
+                                                               Long cursor, Integer limit) {
+        ReviewSort order = sort != null ? sort : ReviewSort.NEWEST;
+        if (cursor == null && limit == null) {
+            // The default first page is what school pages load, so it is cached per order
+            return catalogCache.firstReviewPage(schoolId, order,
+                    () -> loadPage(schoolId, order, null, CursorPage.DEFAULT_LIMIT));
+        }
+        return loadPage(schoolId, order, cursor, CursorPage.clampLimit(limit));
+    }
+
+    /** Reviews whose comments best match the words in text, best first. */
+    @Transactional(readOnly = true)
+    public List<ReviewRepository.ReviewView> searchReviews(String text, Long schoolId, Integer limit) {
+        List<ReviewSearchIndex.Hit> hits = reviewSearchIndex.search(text, schoolId, CursorPage.clampLimit(limit));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ReviewRepository.ReviewView> byId = new HashMap<>();
+        for (ReviewRepository.ReviewView view : reviewRepository.findViewsByIdIn(
+                hits.stream().map(ReviewSearchIndex.Hit::reviewId).toList())) {
+            byId.put(view.getId(), view);
+        }
+        return hits.stream()
+                .map(hit -> byId.get(hit.reviewId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private CursorPage<ReviewRepository.ReviewView> loadPage(Long schoolId, ReviewSort sort, Long cursor, int pageSize) {
+        if (!schoolRepository.existsById(schoolId)) {
+            throw new NoSuchElementException("School not found");
+        }
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        Integer cursorRating = null;
+        if (cursor != null && sort != ReviewSort.NEWEST) {
+            cursorRating = reviewRepository.findRatingById(cursor)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown cursor"));
+        }
+        List<ReviewRepository.ReviewView> rows = switch (sort) {
+            case NEWEST -> reviewRepository.findNewest(schoolId, cursor, page);
+            case HIGHEST -> reviewRepository.findHighest(schoolId, cursor, cursorRating, page);
+            case LOWEST -> reviewRepository.findLowest(schoolId, cursor, cursorRating, page);
+        };
+        return CursorPage.of(rows, pageSize, ReviewRepository.ReviewView::getId);
+    }
+
+    /** Newest reviews first; the cursor is the id of the last review on the previous page. */
+    @Transactional(readOnly = true)
+    public CursorPage<ReviewRepository.ReviewView> listReviews(Long schoolId, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                          Long cursor, Integer limit) {
+        int pageSize = CursorPage.clampLimit(limit);
+        Specification<Review> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (cursor != null) {
+                predicates.add(cb.lessThan(root.<Long>get("id"), cursor));
+            }
+            if (schoolId != null) {
+                predicates.add(cb.equal(root.get("school").get("id"), schoolId));
+            }
+            if (createdFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDateTime>get("createdAt"), createdFrom));
+            }
+            if (createdTo != null) {
+                predicates.add(cb.lessThan(root.<LocalDateTime>get("createdAt"), createdTo));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+        // Filter on ids alone, then fetch the page's rows as flat views in one more query
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Review> root = query.from(Review.class);
+        query.select(root.get("id"))
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(cb.desc(root.get("id")));
+        List<Long> ids = entityManager.createQuery(query).setMaxResults(pageSize + 1).getResultList();
+        List<ReviewRepository.ReviewView> rows = ids.isEmpty() ? List.of() : reviewRepository.findViewsByIdIn(ids);
+        return CursorPage.of(rows, pageSize, ReviewRepository.ReviewView::getId);
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.repository.SchoolRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over school name, city, address and description. Query terms match
+ * indexed tokens exactly, by prefix, or within a small edit distance (found through shared
+ * trigrams), so a search or autocomplete touches only the postings of matching tokens.
+ * Schools with coordinates are also bucketed into a fixed lat/lon grid, so a radius query only
+ * probes the cells overlapping its bounding box. Built once at startup and kept current by the
+ * admin write paths.
+ */
+@Component
+public class SchoolSearchIndex {
+    public enum SortBy { RELEVANCE, RATING, PRICE }
+
+    public record Suggestion(Long id, String name, String city) {}
+
+    public record NearbySchool(School school, double distanceKm) {}
+
+    public static final int MAX_SUGGESTIONS = 20;
+    public static final double MAX_RADIUS_KM = 200;
+
+    // Field weights: a hit in the name counts more than one in the city, which beats free text
+    private static final int NAME = 3;
+    private static final int CITY = 2;
+    private static final int TEXT = 1;
+
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.8;
+    private static final double FUZZY = 0.5;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    // 0.2 degree cells (about 22 km north-south); a maximum-radius query probes a few hundred at most
+    private static final double CELL_DEGREES = 0.2;
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEGREES);
+    private static final double KM_PER_DEGREE = 111.195;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private record Entry(School school, Map<String, Integer> tokens, String city, Long cell) {}
+
+    private final SchoolRepository schoolRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    /** token -> (school id -> weight of the best field the token occurs in) */
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    /** trigram -> indexed tokens containing it */
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final Map<String, Set<Long>> byCity = new HashMap<>();
+    private final Map<Long, Set<Long>> grid = new HashMap<>();
+    private volatile boolean loaded;
+
+    public SchoolSearchIndex(SchoolRepository schoolRepository) {
+        this.schoolRepository = schoolRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<School> schools = schoolRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            trigrams.clear();
+            byCity.clear();
+            grid.clear();
+            schools.forEach(this::add);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes a saved school once the write commits. */
+    public void put(School school) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removeEntry(school.getId());
+                add(school);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /** Re-reads one school after commit, dropping it from the index if it no longer exists. */
+    public void refresh(Long schoolId) {
+        AfterCommit.run(() -> {
+            Optional<School> school = schoolRepository.findById(schoolId);
+            lock.writeLock().lock();
+            try {
+                removeEntry(schoolId);
+                school.ifPresent(this::add);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Schools in the given city (exact, case-insensitive) whose text matches every query term.
+     * Either filter may be blank; with neither, every school is returned.
+     */
+    public List<School> search(String city, String text, SortBy sortBy, int limit) {
+        ensureLoaded();
+        String cityKey = normalizeCity(city);
+        List<String> terms = TextTokens.tokenize(text);
+        lock.readLock().lock();
+        try {
+            Set<Long> cityIds = cityKey != null ? byCity.getOrDefault(cityKey, Set.of()) : null;
+            Map<Long, Double> scores = new HashMap<>();
+            if (terms.isEmpty()) {
+                for (Long id : cityIds != null ? cityIds : entries.keySet()) {
+                    scores.put(id, 0.0);
+                }
+            } else {
+                for (int i = 0; i < terms.size(); i++) {
+                    Map<Long, Double> termScores = match(terms.get(i));
+                    if (i == 0) {
+                        scores.putAll(termScores);
+                    } else {
+                        scores.keySet().retainAll(termScores.keySet());
+                        scores.replaceAll((id, score) -> score + termScores.get(id));
+                    }
+                    if (scores.isEmpty()) {
+                        break;
+                    }
+                }
+                if (cityIds != null) {
+                    scores.keySet().retainAll(cityIds);
+                }
+            }
+            return scores.keySet().stream()
+                    .sorted(order(scores, sortBy))
+                    .limit(Math.max(0, limit))
+                    .map(id -> entries.get(id).school())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Best matches for what has been typed so far; the last term is treated as a prefix and typos are tolerated. */
+    public List<Suggestion> autocomplete(String text, int limit) {
+        if (TextTokens.tokenize(text).isEmpty()) {
+            return List.of();
+        }
+        return search(null, text, SortBy.RELEVANCE, Math.max(1, Math.min(limit, MAX_SUGGESTIONS))).stream()
+                .map(s -> new Suggestion(s.getId(), s.getName(), s.getCity()))
+                .toList();
+    }
+
+    /**
+     * Schools within radiusKm of the point, nearest first, optionally capped on price and floored
+     * on rating. Schools without coordinates never match.
+     */
+    public List<NearbySchool> near(double latitude, double longitude, double radiusKm,
+                                   BigDecimal maxPrice, Double minRating) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+        if (radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            throw new IllegalArgumentException("radiusKm must be between 0 and " + (int) MAX_RADIUS_KM);
+        }
+        ensureLoaded();
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double widestLat = Math.min(89.9, Math.abs(latitude) + dLat);
+        double dLon = Math.min(180, radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(widestLat))));
+        int fromLat = latCell(Math.max(-90, latitude - dLat));
+        int toLat = latCell(Math.min(90, latitude + dLat));
+        int fromLon = (int) Math.floor((longitude - dLon + 180) / CELL_DEGREES);
+        int toLon = Math.min(fromLon + LON_CELLS - 1, (int) Math.floor((longitude + dLon + 180) / CELL_DEGREES));
+
+        List<NearbySchool> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int latIdx = fromLat; latIdx <= toLat; latIdx++) {
+                for (int lon = fromLon; lon <= toLon; lon++) {
+                    Set<Long> ids = grid.get(cellKey(latIdx, Math.floorMod(lon, LON_CELLS)));
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (Long id : ids) {
+                        School school = entries.get(id).school();
+                        if (maxPrice != null && (school.getPricePerLesson() == null
+                                || school.getPricePerLesson().compareTo(maxPrice) > 0)) {
+                            continue;
+                        }
+                        if (minRating != null && (school.getRating() == null || school.getRating() < minRating)) {
+                            continue;
+                        }
+                        double distance = distanceKm(latitude, longitude, school.getLatitude(), school.getLongitude());
+                        if (distance <= radiusKm) {
+                            result.add(new NearbySchool(school, distance));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingDouble(NearbySchool::distanceKm)
+                .thenComparing(n -> n.school().getId()));
+        return result;
+    }
+
+    private void ensureLoaded() {
+        // Requests can arrive before ApplicationReadyEvent once the web server is up
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    private Map<Long, Double> match(String term) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> e
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            accumulate(scores, e.getValue(), e.getKey().length() == term.length() ? EXACT : PREFIX);
+        }
+        if (term.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = term.length() >= 7 ? 2 : 1;
+            Set<String> candidates = new HashSet<>();
+            for (String gram : grams(term)) {
+                candidates.addAll(trigrams.getOrDefault(gram, Set.of()));
+            }
+            for (String token : candidates) {
+                if (token.startsWith(term)) {
+                    continue;
+                }
+                // A typo in a whole word, or in the part of a longer word typed so far
+                if (withinEdits(term, token, maxEdits)
+                        || (token.length() > term.length()
+                            && withinEdits(term, token.substring(0, term.length()), maxEdits))) {
+                    accumulate(scores, postings.get(token), FUZZY);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static void accumulate(Map<Long, Double> scores, Map<Long, Integer> docs, double quality) {
+        docs.forEach((id, weight) -> scores.merge(id, weight * quality, Math::max));
+    }
+
+    private Comparator<Long> order(Map<Long, Double> scores, SortBy sortBy) {
+        Comparator<Long> byScore = Comparator.comparing(scores::get, Comparator.<Double>reverseOrder());
+        Comparator<Long> byRating = Comparator.comparing((Long id) -> entries.get(id).school().getRating(),
+                Comparator.nullsLast(Comparator.<Double>reverseOrder()));
+        Comparator<Long> byPrice = Comparator.comparing((Long id) -> entries.get(id).school().getPricePerLesson(),
+                Comparator.nullsLast(Comparator.<BigDecimal>naturalOrder()));
+        Comparator<Long> order = switch (sortBy != null ? sortBy : SortBy.RELEVANCE) {
+            case RATING -> byRating.thenComparing(byScore);
+            case PRICE -> byPrice.thenComparing(byScore);
+            case RELEVANCE -> byScore.thenComparing(byRating);
+        };
+        return order.thenComparing(Comparator.<Long>naturalOrder());
+    }
+
+    private void add(School school) {
+        Map<String, Integer> tokens = new HashMap<>();
+        collect(tokens, school.getName(), NAME);
+        collect(tokens, school.getCity(), CITY);
+        collect(tokens, school.getAddress(), TEXT);
+        collect(tokens, school.getDescription(), TEXT);
+        String city = normalizeCity(school.getCity());
+        Long id = school.getId();
+        Long cell = cellOf(school);
+        entries.put(id, new Entry(school, tokens, city, cell));
+        tokens.forEach((token, weight) -> postings.computeIfAbsent(token, t -> {
+            for (String gram : grams(t)) {
+                trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(t);
+            }
+            return new HashMap<>();
+        }).put(id, weight));
+        if (city != null) {
+            byCity.computeIfAbsent(city, c -> new HashSet<>()).add(id);
+        }
+        if (cell != null) {
+            grid.computeIfAbsent(cell, c -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeEntry(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.tokens().keySet()) {
+            Map<Long, Integer> docs = postings.get(token);
+            if (docs == null) {
+                continue;
+            }
+            docs.remove(id);
+            if (docs.isEmpty()) {
+                postings.remove(token);
+                for (String gram : grams(token)) {
+                    Set<String> gramTokens = trigrams.get(gram);
+                    if (gramTokens != null && gramTokens.remove(token) && gramTokens.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+        if (entry.city() != null) {
+            Set<Long> ids = byCity.get(entry.city());
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                byCity.remove(entry.city());
+            }
+        }
+        if (entry.cell() != null) {
+            Set<Long> ids = grid.get(entry.cell());
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                grid.remove(entry.cell());
+            }
+        }
+    }
+
+    private static Long cellOf(School school) {
+        Double lat = school.getLatitude();
+        Double lon = school.getLongitude();
+        if (lat == null || lon == null || lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return null;
+        }
+        return cellKey(latCell(lat), Math.floorMod((int) Math.floor((lon + 180) / CELL_DEGREES), LON_CELLS));
+    }
+
+    private static int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    private static long cellKey(int latIdx, int lonIdx) {
+        return ((long) latIdx << 32) | (lonIdx & 0xffffffffL);
+    }
+
+    /** Great-circle distance by the haversine formula. */
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static void collect(Map<String, Integer> tokens, String text, int weight) {
+        for (String token : TextTokens.tokenize(text)) {
+            tokens.merge(token, weight, Math::max);
+        }
+    }
+
+    private static String normalizeCity(String city) {
+        if (city == null || city.isBlank()) {
+            return null;
+        }
+        return TextTokens.fold(city).trim().replaceAll("\\s+", " ");
+    }
+
+    private static List<String> grams(String token) {
+        String padded = "^" + token + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /** Optimal string alignment distance (adjacent swaps count as one edit), cut off at maxEdits. */
+    private static boolean withinEdits(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, d[i][j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+        }
+        return d[a.length()][b.length()] <= maxEdits;
+    }
+}
@@ -1,40 +1,159 @@
 package com.example.drivingschool.service;
 
+import com.example.drivingschool.controller.AdminController;
 import com.example.drivingschool.model.Instructor;
 import com.example.drivingschool.model.School;
 import com.example.drivingschool.repository.InstructorRepository;
 import com.example.drivingschool.repository.SchoolRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 public class SchoolService {
+    public record NearbyInstructor(Instructor instructor, double distanceKm) {}
+
+    public static final int MAX_NEARBY_RESULTS = 200;
+    // Schools are checked for free lessons a chunk at a time, nearest first, until the page is full
+    private static final int FREE_SLOT_CHUNK = 100;
+
     private final SchoolRepository schoolRepository;
     private final InstructorRepository instructorRepository;
+    private final CatalogCache catalogCache;
+    private final SchoolSearchIndex searchIndex;
+    private final SlotSearchService slotSearchService;
 
-    public SchoolService(SchoolRepository schoolRepository, InstructorRepository instructorRepository) {
+    public SchoolService(SchoolRepository schoolRepository, InstructorRepository instructorRepository,
+                         CatalogCache catalogCache,
+                         SchoolSearchIndex searchIndex, SlotSearchService slotSearchService) {
         this.schoolRepository = schoolRepository;
         this.instructorRepository = instructorRepository;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.slotSearchService = slotSearchService;
+    }
+
+    /** City and text filters combine; text matches name, city, address and description. */
+    public List<School> search(String city, String text, SchoolSearchIndex.SortBy sortBy) {
+        return searchIndex.search(city, text, sortBy, Integer.MAX_VALUE);
+    }
+
+    public List<SchoolSearchIndex.Suggestion> autocomplete(String text, int limit) {
+        return searchIndex.autocomplete(text, limit);
     }
 
-    public List<School> search(String city, String name) {
-        if (city != null && !city.isBlank()) {
-            return schoolRepository.findByCityIgnoreCase(city);
+    /** Nearest schools first; freeThisWeek keeps only schools with an instructor who has a bookable lesson in the next 7 days. */
+    public List<SchoolSearchIndex.NearbySchool> near(double latitude, double longitude, double radiusKm,
+                                                     BigDecimal maxPrice, Double minRating,
+                                                     boolean freeThisWeek, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_NEARBY_RESULTS));
+        List<SchoolSearchIndex.NearbySchool> candidates =
+                searchIndex.near(latitude, longitude, radiusKm, maxPrice, minRating);
+        if (!freeThisWeek) {
+            return candidates.size() > max ? candidates.subList(0, max) : candidates;
         }
-        if (name != null && !name.isBlank()) {
-            return schoolRepository.findByNameContainingIgnoreCase(name);
+        List<SchoolSearchIndex.NearbySchool> result = new ArrayList<>();
+        for (int from = 0; from < candidates.size() && result.size() < max; from += FREE_SLOT_CHUNK) {
+            List<SchoolSearchIndex.NearbySchool> chunk =
+                    candidates.subList(from, Math.min(from + FREE_SLOT_CHUNK, candidates.size()));
+            Set<Long> schoolsWithFreeSlot = new HashSet<>();
+            for (Instructor instructor : freeInstructors(chunk)) {
+                schoolsWithFreeSlot.add(instructor.getSchool().getId());
+            }
+            for (SchoolSearchIndex.NearbySchool nearby : chunk) {
+                if (result.size() < max && schoolsWithFreeSlot.contains(nearby.school().getId())) {
+                    result.add(nearby);
+                }
+            }
         }
-        return schoolRepository.findAll();
+        return result;
+    }
+
+    /** Instructors of the nearest schools, nearest first and best rated within a school. */
+    public List<NearbyInstructor> nearInstructors(double latitude, double longitude, double radiusKm,
+                                                  BigDecimal maxPrice, Double minRating,
+                                                  boolean freeThisWeek, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_NEARBY_RESULTS));
+        List<SchoolSearchIndex.NearbySchool> candidates =
+                searchIndex.near(latitude, longitude, radiusKm, maxPrice, minRating);
+        List<NearbyInstructor> result = new ArrayList<>();
+        for (int from = 0; from < candidates.size() && result.size() < max; from += FREE_SLOT_CHUNK) {
+            List<SchoolSearchIndex.NearbySchool> chunk =
+                    candidates.subList(from, Math.min(from + FREE_SLOT_CHUNK, candidates.size()));
+            List<Instructor> instructors = freeThisWeek ? freeInstructors(chunk) : instructorsOf(chunk);
+            Map<Long, List<Instructor>> bySchool = new HashMap<>();
+            for (Instructor instructor : instructors) {
+                bySchool.computeIfAbsent(instructor.getSchool().getId(), id -> new ArrayList<>()).add(instructor);
+            }
+            for (SchoolSearchIndex.NearbySchool nearby : chunk) {
+                List<Instructor> atSchool = bySchool.get(nearby.school().getId());
+                if (atSchool == null) {
+                    continue;
+                }
+                atSchool.sort(Comparator.comparing(Instructor::getRating, Comparator.nullsLast(Comparator.<Double>reverseOrder())));
+                for (Instructor instructor : atSchool) {
+                    if (result.size() < max) {
+                        result.add(new NearbyInstructor(instructor, nearby.distanceKm()));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<Instructor> instructorsOf(List<SchoolSearchIndex.NearbySchool> schools) {
+        return instructorRepository.findBySchoolIdIn(schools.stream().map(n -> n.school().getId()).toList());
+    }
+
+    private List<Instructor> freeInstructors(List<SchoolSearchIndex.NearbySchool> schools) {
+        List<Instructor> instructors = instructorsOf(schools);
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> free = slotSearchService.instructorsWithFreeSlot(instructors, now, now.plusDays(7));
+        return instructors.stream().filter(i -> free.contains(i.getId())).toList();
     }
 
     public School get(Long id) {
-        return schoolRepository.findById(id).orElseThrow();
+        return catalogCache.school(id, key -> schoolRepository.findById(key).orElseThrow());
     }
 
-    public List<Instructor> instructors(Long schoolId) {
-        School school = get(schoolId);
-        return instructorRepository.findBySchool(school);
+    public List<InstructorRepository.InstructorView> instructors(Long schoolId) {
+        get(schoolId);
+        return catalogCache.instructors(schoolId, instructorRepository::findViewsBySchoolId);
+    }
+
+    public School saveSchool(School school) {
+        School saved = schoolRepository.save(school);
+        catalogCache.schoolChanged(saved.getId());
+        searchIndex.put(saved);
+        return saved;
     }
-}
 
+    /** Applies an admin edit to the locked row, so a review landing meanwhile keeps its rating. */
+    @Transactional
+    public School updateSchool(Long id, AdminController.SchoolRequest req) {
+        School s = schoolRepository.lockById(id).orElseThrow();
+        s.setName(req.name());
+        s.setDescription(req.description());
+        s.setCity(req.city());
+        s.setAddress(req.address());
+        s.setContactPhone(req.contactPhone());
+        if (s.getRatingStats().getCount() == 0) {
+            // Once reviews exist the rating is their live average
+            s.setRating(req.rating());
+        }
+        s.setPricePerLesson(req.pricePerLesson());
+        s.setDefaultLessonMinutes(req.defaultLessonMinutes());
+        s.setLatitude(req.latitude());
+        s.setLongitude(req.longitude());
+        return saveSchool(s);
+    }
+
+    public Instructor saveInstructor(Instructor instructor) {
+        Instructor saved = instructorRepository.save(instructor);
+        catalogCache.instructorsChanged(saved.getSchool() != null ? saved.getSchool().getId() : null);
+        return saved;
+    }
+}
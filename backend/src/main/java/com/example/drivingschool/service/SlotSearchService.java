@@ -0,0 +1,310 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.AvailabilityMonth;
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.repository.AvailabilityMonthRepository;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Finds the earliest free lessons across many instructors. Every instructor's availability
+ * bitmaps and the lesson slot table each yield free start times in ascending order, and the
+ * streams are merged through a priority queue so only the first {@code limit} entries are read.
+ */
+@Service
+public class SlotSearchService {
+    public static final int MAX_RESULTS = 100;
+
+    public record FreeSlot(Long instructorId,
+                           String instructorName,
+                           Long schoolId,
+                           String schoolName,
+                           String city,
+                           LocalDateTime startTime,
+                           Long slotId) {}
+
+    public record SearchRequest(String city,
+                                Long schoolId,
+                                LocalDate from,
+                                LocalDate to,
+                                LocalTime after,
+                                int limit) {}
+
+    private final InstructorRepository instructorRepository;
+    private final SchoolRepository schoolRepository;
+    private final AvailabilityMonthRepository availabilityMonthRepository;
+    private final LessonSlotRepository slotRepository;
+
+    public SlotSearchService(InstructorRepository instructorRepository,
+                             SchoolRepository schoolRepository,
+                             AvailabilityMonthRepository availabilityMonthRepository,
+                             LessonSlotRepository slotRepository) {
+        this.instructorRepository = instructorRepository;
+        this.schoolRepository = schoolRepository;
+        this.availabilityMonthRepository = availabilityMonthRepository;
+        this.slotRepository = slotRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<FreeSlot> earliestFree(SearchRequest req) {
+        int limit = Math.max(1, Math.min(req.limit(), MAX_RESULTS));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate fromDate = req.from() != null ? req.from() : now.toLocalDate();
+        LocalDate toDate = req.to() != null ? req.to() : fromDate.plusDays(30);
+        if (toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        LocalDateTime from = fromDate.atStartOfDay().isBefore(now) ? now : fromDate.atStartOfDay();
+        LocalDateTime to = toDate.atTime(LocalTime.MAX);
+
+        List<Instructor> instructors = candidates(req.city(), req.schoolId());
+        if (instructors.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<AvailabilityMonth>> monthsByInstructor = new HashMap<>();
+        for (AvailabilityMonth month : availabilityMonthRepository.findByInstructorInAndMonthBetweenOrderByMonth(
+                instructors, YearMonth.from(fromDate).toString(), YearMonth.from(toDate).toString())) {
+            monthsByInstructor.computeIfAbsent(month.getInstructor().getId(), id -> new ArrayList<>()).add(month);
+        }
+
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        for (Instructor instructor : instructors) {
+            List<AvailabilityMonth> months = monthsByInstructor.get(instructor.getId());
+            if (months != null) {
+                push(heads, new BitmapCursor(instructor, months, from, to, req.after()));
+            }
+        }
+        push(heads, new LessonSlotCursor(instructors, from, to, req.after(), limit));
+
+        // k-way merge; a booked-through lesson slot and its bitmap entry describe the same lesson
+        List<FreeSlot> result = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        while (!heads.isEmpty() && result.size() < limit) {
+            Head head = heads.poll();
+            if (seen.add(head.slot.instructorId() + "@" + head.slot.startTime())) {
+                result.add(head.slot);
+            }
+            push(heads, head.rest);
+        }
+        return result;
+    }
+
+    /** Ids of the given instructors that have at least one bookable lesson between from and to. */
+    @Transactional(readOnly = true)
+    public Set<Long> instructorsWithFreeSlot(Collection<Instructor> instructors, LocalDateTime from, LocalDateTime to) {
+        if (instructors.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> free = new HashSet<>(slotRepository.findInstructorIdsWithFreeSlot(instructors, from, to));
+        Map<Long, List<AvailabilityMonth>> monthsByInstructor = new HashMap<>();
+        for (AvailabilityMonth month : availabilityMonthRepository.findByInstructorInAndMonthBetweenOrderByMonth(
+                instructors, YearMonth.from(from).toString(), YearMonth.from(to).toString())) {
+            monthsByInstructor.computeIfAbsent(month.getInstructor().getId(), id -> new ArrayList<>()).add(month);
+        }
+        for (Instructor instructor : instructors) {
+            List<AvailabilityMonth> months = monthsByInstructor.get(instructor.getId());
+            if (months != null && !free.contains(instructor.getId())
+                    && new BitmapCursor(instructor, months, from, to, null).hasNext()) {
+                free.add(instructor.getId());
+            }
+        }
+        return free;
+    }
+
+    private List<Instructor> candidates(String city, Long schoolId) {
+        if (schoolId != null) {
+            List<Instructor> instructors = instructorRepository.findBySchool(schoolRepository.findById(schoolId).orElseThrow());
+            if (city == null || city.isBlank()) {
+                return instructors;
+            }
+            return instructors.stream()
+                    .filter(i -> i.getSchool() != null && city.equalsIgnoreCase(i.getSchool().getCity()))
+                    .toList();
+        }
+        if (city != null && !city.isBlank()) {
+            return instructorRepository.findBySchoolCityIgnoreCase(city);
+        }
+        return instructorRepository.findAllWithSchool();
+    }
+
+    private static void push(PriorityQueue<Head> heads, Iterator<FreeSlot> cursor) {
+        if (cursor.hasNext()) {
+            heads.add(new Head(cursor.next(), cursor));
+        }
+    }
+
+    private static boolean matchesTime(LocalDateTime start, LocalTime after) {
+        return after == null || !start.toLocalTime().isBefore(after);
+    }
+
+    private static FreeSlot freeSlot(Instructor instructor, LocalDateTime start, Long slotId) {
+        Long schoolId = instructor.getSchool() != null ? instructor.getSchool().getId() : null;
+        String schoolName = instructor.getSchool() != null ? instructor.getSchool().getName() : null;
+        String city = instructor.getSchool() != null ? instructor.getSchool().getCity() : null;
+        return new FreeSlot(instructor.getId(), instructor.getName(), schoolId, schoolName, city, start, slotId);
+    }
+
+    private record Head(FreeSlot slot, Iterator<FreeSlot> rest) implements Comparable<Head> {
+        @Override
+        public int compareTo(Head other) {
+            int byTime = slot.startTime().compareTo(other.slot.startTime());
+            return byTime != 0 ? byTime : slot.instructorId().compareTo(other.slot.instructorId());
+        }
+    }
+
+    /** Walks one instructor's months day by day and slot by slot, which is already time order. */
+    private static final class BitmapCursor implements Iterator<FreeSlot> {
+        private final Instructor instructor;
+        private final List<AvailabilityMonth> months;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final LocalTime after;
+
+        private int monthIndex = -1;
+        private YearMonth yearMonth;
+        private AvailabilityBitmap bitmap;
+        private int day;
+        private int slot = AvailabilityBitmap.SLOTS_PER_DAY;
+        private FreeSlot next;
+
+        BitmapCursor(Instructor instructor, List<AvailabilityMonth> months,
+                     LocalDateTime from, LocalDateTime to, LocalTime after) {
+            this.instructor = instructor;
+            this.months = months;
+            this.from = from;
+            this.to = to;
+            this.after = after;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public FreeSlot next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            FreeSlot current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (true) {
+                slot++;
+                if (slot >= AvailabilityBitmap.SLOTS_PER_DAY) {
+                    slot = 0;
+                    day++;
+                    while (bitmap == null || day > bitmap.lengthOfMonth()) {
+                        if (!nextMonth()) {
+                            return;
+                        }
+                    }
+                }
+                if (bitmap.isDayOff(day) || bitmap.get(day, slot) != SlotStatus.AVAILABLE) {
+                    continue;
+                }
+                LocalDateTime start = LocalDateTime.of(yearMonth.atDay(day),
+                        LocalTime.parse(AvailabilityService.TIME_SLOTS.get(slot)));
+                if (start.isAfter(to)) {
+                    monthIndex = months.size();
+                    return;
+                }
+                if (!start.isBefore(from) && matchesTime(start, after)) {
+                    next = freeSlot(instructor, start, null);
+                    return;
+                }
+            }
+        }
+
+        private boolean nextMonth() {
+            monthIndex++;
+            if (monthIndex >= months.size()) {
+                return false;
+            }
+            AvailabilityMonth month = months.get(monthIndex);
+            yearMonth = YearMonth.parse(month.getMonth());
+            bitmap = AvailabilityBitmap.decode(month.getSlotStates(), yearMonth.lengthOfMonth());
+            // Jump straight to the first day of the search window
+            day = yearMonth.equals(YearMonth.from(from)) ? from.getDayOfMonth() : 1;
+            return true;
+        }
+    }
+
+    /** Pages through free lesson slots of all candidates ordered by start time. */
+    private final class LessonSlotCursor implements Iterator<FreeSlot> {
+        private final List<Instructor> instructors;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final LocalTime after;
+
+        private Pageable page;
+        private Iterator<LessonSlot> current = Collections.emptyIterator();
+        private FreeSlot next;
+
+        LessonSlotCursor(List<Instructor> instructors, LocalDateTime from, LocalDateTime to,
+                         LocalTime after, int pageSize) {
+            this.instructors = instructors;
+            this.from = from;
+            this.to = to;
+            this.after = after;
+            this.page = PageRequest.of(0, pageSize, Sort.by("startTime", "id"));
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public FreeSlot next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            FreeSlot result = next;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            next = null;
+            while (true) {
+                while (!current.hasNext()) {
+                    if (page == null) {
+                        return;
+                    }
+                    Slice<LessonSlot> slice = slotRepository
+                            .findByInstructorInAndAvailableTrueAndStartTimeBetween(instructors, from, to, page);
+                    current = slice.getContent().iterator();
+                    page = slice.hasNext() ? slice.nextPageable() : null;
+                }
+                LessonSlot slot = current.next();
+                if (matchesTime(slot.getStartTime(), after)) {
+                    next = freeSlot(slot.getInstructor(), slot.getStartTime(), slot.getId());
+                    return;
+                }
+            }
+        }
+    }
+}
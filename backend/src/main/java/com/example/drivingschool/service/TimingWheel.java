@@ -0,0 +1,69 @@
+package com.example.drivingschool.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel: ids are dropped into the bucket of their deadline tick and each
+ * advance only looks at the buckets whose ticks have passed. Deadlines further away than
+ * one revolution stay in their bucket until the wheel comes round to the right tick.
+ */
+public final class TimingWheel {
+    private record Entry(Long id, long tick) {}
+
+    private final List<ArrayDeque<Entry>> buckets;
+    private final long tickMillis;
+    private final long originMillis;
+    private long nextTick;
+
+    public TimingWheel(int size, long tickMillis, long originMillis) {
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = originMillis;
+    }
+
+    public synchronized void add(Long id, long deadlineMillis) {
+        long tick = Math.max(nextTick, Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis));
+        buckets.get(bucket(tick)).add(new Entry(id, tick));
+    }
+
+    /** Removes and returns every id whose deadline is at or before {@code nowMillis}. */
+    public synchronized List<Long> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        List<Long> due = new ArrayList<>();
+        if (nowTick < nextTick) {
+            return due;
+        }
+        // After a long pause one pass over the whole wheel is enough
+        long last = Math.min(nowTick, nextTick + buckets.size() - 1);
+        for (long tick = nextTick; tick <= last; tick++) {
+            Iterator<Entry> it = buckets.get(bucket(tick)).iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.tick() <= nowTick) {
+                    due.add(entry.id());
+                    it.remove();
+                }
+            }
+        }
+        nextTick = nowTick + 1;
+        return due;
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (ArrayDeque<Entry> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private int bucket(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+}
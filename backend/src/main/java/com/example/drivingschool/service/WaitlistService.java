@@ -0,0 +1,212 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.BookingRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.repository.WaitlistEntryRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-slot waitlists. The queues of entry ids live in memory, rebuilt from the waitlist_entry
+ * table on startup, so freeing a slot looks at the head of one queue: one select for the
+ * entry, then the booking insert and the entry delete, in the transaction that freed the slot.
+ * Waitlists of lessons that have started are purged hourly.
+ */
+@Service
+public class WaitlistService {
+    public record Position(Long entryId, Long slotId, int position) {}
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+
+    private final WaitlistEntryRepository waitlistRepository;
+    private final LessonSlotRepository slotRepository;
+    private final BookingRepository bookingRepository;
+    private final LearnerResolver learnerResolver;
+    private final Map<Long, Deque<Long>> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "waitlist-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WaitlistService(WaitlistEntryRepository waitlistRepository,
+                           LessonSlotRepository slotRepository,
+                           BookingRepository bookingRepository,
+                           LearnerResolver learnerResolver) {
+        this.waitlistRepository = waitlistRepository;
+        this.slotRepository = slotRepository;
+        this.bookingRepository = bookingRepository;
+        this.learnerResolver = learnerResolver;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        queues.clear();
+        for (WaitlistEntryRepository.QueuedView entry : waitlistRepository.findAllQueued()) {
+            queue(entry.getSlotId()).addLast(entry.getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purger.scheduleWithFixedDelay(this::purgeStarted, 0, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        purger.shutdownNow();
+    }
+
+    /** Puts the learner at the back of the slot's waitlist, or reports where they already are. */
+    @Transactional
+    public Position join(Long slotId, Long userId, String email, String fullName, String phone,
+                         String paymentMethod, String cardLast4) {
+        LessonSlot slot = slotRepository.findById(slotId).orElseThrow(() -> new NoSuchElementException("Slot not found"));
+        if (slot.isAvailable()) {
+            throw new IllegalStateException("Slot is still free, book it instead");
+        }
+        if (slot.getStartTime().isBefore(LocalDateTime.now())) {
+            throw new IllegalStateException("Lesson is in the past");
+        }
+        User learner = learnerResolver.resolve(userId, email, fullName, phone);
+        WaitlistEntry existing = waitlistRepository.findBySlotIdAndLearnerId(slotId, learner.getId()).orElse(null);
+        if (existing != null) {
+            return new Position(existing.getId(), slotId, positionOf(slotId, existing.getId()));
+        }
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setSlot(slot);
+        entry.setLearner(learner);
+        // The column keeps microseconds; a finer value would compare after its own stored copy
+        entry.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        if (paymentMethod != null) {
+            entry.setPaymentMethod(paymentMethod.toUpperCase());
+        }
+        entry.setCardLast4(cardLast4);
+        Long entryId = waitlistRepository.save(entry).getId();
+        AfterCommit.run(() -> queue(slotId).addLast(entryId));
+        // Counted from the table: the queue only gets this entry once the join commits
+        int position = (int) waitlistRepository.countAhead(slotId, entry.getCreatedAt(), entryId) + 1;
+        return new Position(entryId, slotId, position);
+    }
+
+    @Transactional(readOnly = true)
+    public Position position(Long entryId) {
+        WaitlistEntryRepository.QueuedView entry = waitlistRepository.findQueuedById(entryId)
+                .orElseThrow(() -> new NoSuchElementException("Waitlist entry not found"));
+        return new Position(entryId, entry.getSlotId(), positionOf(entry.getSlotId(), entryId));
+    }
+
+    @Transactional
+    public void leave(Long entryId) {
+        waitlistRepository.findQueuedById(entryId).ifPresent(entry -> {
+            waitlistRepository.deleteAllByIdInBatch(List.of(entryId));
+            AfterCommit.run(() -> dequeue(entry.getSlotId(), entryId));
+        });
+    }
+
+    /** Drops the slot's waitlist; call before deleting the slot. */
+    @Transactional
+    public void slotDeleted(Long slotId) {
+        waitlistRepository.deleteBySlotId(slotId);
+        AfterCommit.run(() -> queues.remove(slotId));
+    }
+
+    /** Drops the waitlists of every slot of these instructors; call before deleting the slots. */
+    @Transactional
+    public int instructorsDeleted(Collection<Long> instructorIds) {
+        List<Long> slotIds = waitlistRepository.findSlotIdsByInstructorIds(instructorIds);
+        int deleted = waitlistRepository.deleteByInstructorIds(instructorIds);
+        AfterCommit.run(() -> slotIds.forEach(queues::remove));
+        return deleted;
+    }
+
+    /**
+     * Books the freed slot for the first learner still waiting, as a PENDING hold for the
+     * instructor to confirm, and returns that booking; null when nobody is waiting. The slot
+     * stays taken, so the caller only gives it back when this returns null.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Booking promote(LessonSlot slot, LocalDateTime holdExpiresAt) {
+        Deque<Long> queue = queues.get(slot.getId());
+        if (queue == null || slot.getStartTime().isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        for (Long entryId : queue) {
+            WaitlistEntry entry = waitlistRepository.findById(entryId).orElse(null);
+            if (entry == null) {
+                // Left the list, or was promoted by another instance
+                dequeue(slot.getId(), entryId);
+                continue;
+            }
+            Booking booking = new Booking();
+            booking.setLearner(entry.getLearner());
+            booking.setSlot(slot);
+            booking.setStatus(BookingStatus.PENDING);
+            booking.setHoldExpiresAt(holdExpiresAt);
+            booking.setPaymentMethod(entry.getPaymentMethod());
+            booking.setCardLast4(entry.getCardLast4());
+            bookingRepository.save(booking);
+            waitlistRepository.delete(entry);
+            AfterCommit.run(() -> dequeue(slot.getId(), entryId));
+            return booking;
+        }
+        return null;
+    }
+
+    /** Drops the waitlists of lessons that have already started; nobody can be promoted into them. */
+    public void purgeStarted() {
+        try {
+            List<Long> slotIds = waitlistRepository.findSlotIdsStartingBefore(LocalDateTime.now());
+            if (!slotIds.isEmpty()) {
+                waitlistRepository.deleteBySlotIdIn(slotIds);
+                slotIds.forEach(queues::remove);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Purging past waitlists failed, retrying next run: {}", e.getMessage());
+        }
+    }
+
+    private Deque<Long> queue(Long slotId) {
+        return queues.computeIfAbsent(slotId, id -> new ConcurrentLinkedDeque<>());
+    }
+
+    private void dequeue(Long slotId, Long entryId) {
+        // The promoted entry is at the head, so this is constant time on the promotion path
+        queues.computeIfPresent(slotId, (id, queue) -> queue.removeFirstOccurrence(entryId) && queue.isEmpty() ? null : queue);
+    }
+
+    private int positionOf(Long slotId, Long entryId) {
+        Deque<Long> queue = queues.get(slotId);
+        int position = 1;
+        if (queue != null) {
+            for (Long id : queue) {
+                if (id.equals(entryId)) {
+                    return position;
+                }
+                position++;
+            }
+        }
+        // Joined but not committed yet, or only known to another instance
+        return position;
+    }
+}
@@ -0,0 +1,84 @@
+-- Schema as it stood when ddl-auto=update still managed it. Databases created that way are
+-- baselined at this version and only pick up the migrations after it.
+
+create table users (
+    id bigint generated by default as identity,
+    email varchar(255),
+    full_name varchar(255),
+    password varchar(255),
+    phone varchar(255),
+    role enum ('ADMIN', 'INSTRUCTOR', 'LEARNER'),
+    primary key (id),
+    constraint uk_users_email unique (email)
+);
+
+create table school (
+    id bigint generated by default as identity,
+    address varchar(255),
+    city varchar(255),
+    contact_phone varchar(255),
+    default_lesson_minutes integer,
+    description varchar(255),
+    name varchar(255),
+    price_per_lesson numeric(10,2),
+    rating float(53),
+    primary key (id)
+);
+
+create table instructor (
+    id bigint generated by default as identity,
+    bio varchar(255),
+    name varchar(255),
+    rating float(53),
+    school_id bigint,
+    primary key (id),
+    constraint fk_instructor_school foreign key (school_id) references school (id)
+);
+
+create table lesson_slot (
+    id bigint generated by default as identity,
+    available boolean not null,
+    duration_minutes integer,
+    price numeric(10,2),
+    start_time timestamp(6),
+    instructor_id bigint,
+    primary key (id),
+    constraint fk_lesson_slot_instructor foreign key (instructor_id) references instructor (id)
+);
+
+create table booking (
+    id bigint generated by default as identity,
+    card_last4 varchar(255),
+    created_at timestamp(6),
+    payment_method varchar(255),
+    status enum ('CANCELLED', 'CONFIRMED', 'PENDING'),
+    learner_id bigint,
+    slot_id bigint,
+    primary key (id),
+    constraint fk_booking_learner foreign key (learner_id) references users (id),
+    constraint fk_booking_slot foreign key (slot_id) references lesson_slot (id)
+);
+
+create table review (
+    id bigint generated by default as identity,
+    comment varchar(255),
+    created_at timestamp(6),
+    rating integer not null,
+    reviewer_id bigint,
+    school_id bigint,
+    primary key (id),
+    constraint fk_review_reviewer foreign key (reviewer_id) references users (id),
+    constraint fk_review_school foreign key (school_id) references school (id)
+);
+
+create table driver_availability (
+    id bigint generated by default as identity,
+    availability_month varchar(255),
+    available_date date,
+    is_unavailable_day boolean not null,
+    status varchar(255),
+    time_slot varchar(255),
+    instructor_id bigint,
+    primary key (id),
+    constraint fk_driver_availability_instructor foreign key (instructor_id) references instructor (id)
+);
@@ -0,0 +1,9 @@
+-- Ids now come from pooled sequences (allocationSize 50). H2 databases here are in-memory and
+-- always start empty, so the sequences start at the beginning.
+create sequence users_seq start with 1 increment by 50;
+create sequence school_seq start with 1 increment by 50;
+create sequence instructor_seq start with 1 increment by 50;
+create sequence lesson_slot_seq start with 1 increment by 50;
+create sequence booking_seq start with 1 increment by 50;
+create sequence review_seq start with 1 increment by 50;
+create sequence availability_month_seq start with 1 increment by 50;
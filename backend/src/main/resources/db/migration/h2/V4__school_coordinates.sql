@@ -0,0 +1,3 @@
+-- Coordinates for the in-memory "near me" grid; schools without them are simply not found by it
+alter table school add column latitude float(53);
+alter table school add column longitude float(53);
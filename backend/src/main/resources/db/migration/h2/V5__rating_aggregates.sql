@@ -0,0 +1,33 @@
+-- Running review totals and star histograms, kept current by RatingAggregateService
+alter table school add column review_count bigint default 0 not null;
+alter table school add column rating_sum bigint default 0 not null;
+alter table school add column stars_1 bigint default 0 not null;
+alter table school add column stars_2 bigint default 0 not null;
+alter table school add column stars_3 bigint default 0 not null;
+alter table school add column stars_4 bigint default 0 not null;
+alter table school add column stars_5 bigint default 0 not null;
+
+alter table instructor add column review_count bigint default 0 not null;
+alter table instructor add column rating_sum bigint default 0 not null;
+alter table instructor add column stars_1 bigint default 0 not null;
+alter table instructor add column stars_2 bigint default 0 not null;
+alter table instructor add column stars_3 bigint default 0 not null;
+alter table instructor add column stars_4 bigint default 0 not null;
+alter table instructor add column stars_5 bigint default 0 not null;
+
+-- Reviews can name the instructor they are about
+alter table review add column instructor_id bigint;
+alter table review add constraint fk_review_instructor foreign key (instructor_id) references instructor (id);
+
+-- Seed school totals from the reviews already on file
+update school set
+    review_count = (select count(*) from review r where r.school_id = school.id),
+    rating_sum = (select coalesce(sum(r.rating), 0) from review r where r.school_id = school.id),
+    stars_1 = (select count(*) from review r where r.school_id = school.id and r.rating = 1),
+    stars_2 = (select count(*) from review r where r.school_id = school.id and r.rating = 2),
+    stars_3 = (select count(*) from review r where r.school_id = school.id and r.rating = 3),
+    stars_4 = (select count(*) from review r where r.school_id = school.id and r.rating = 4),
+    stars_5 = (select count(*) from review r where r.school_id = school.id and r.rating = 5);
+
+update school set rating = (select avg(r.rating) from review r where r.school_id = school.id)
+where exists (select 1 from review r where r.school_id = school.id);
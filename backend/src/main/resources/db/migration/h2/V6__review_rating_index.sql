@@ -0,0 +1,2 @@
+-- Keyset pages of a school's reviews ordered by rating
+create index idx_review_school_rating on review (school_id, rating, id);
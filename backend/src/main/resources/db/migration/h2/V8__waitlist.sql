@@ -0,0 +1,17 @@
+-- Learners waiting for a booked slot, promoted oldest first when it frees up
+create sequence waitlist_entry_seq start with 1 increment by 50;
+
+create table waitlist_entry (
+    id bigint not null,
+    card_last4 varchar(255),
+    created_at timestamp(6),
+    payment_method varchar(255),
+    learner_id bigint,
+    slot_id bigint,
+    primary key (id),
+    constraint uk_waitlist_entry_slot_learner unique (slot_id, learner_id),
+    constraint fk_waitlist_entry_learner foreign key (learner_id) references users (id),
+    constraint fk_waitlist_entry_slot foreign key (slot_id) references lesson_slot (id)
+);
+
+create index idx_waitlist_entry_slot_created on waitlist_entry (slot_id, created_at, id);
@@ -0,0 +1,7 @@
+-- Per-month slot counts, rewritten with slot_states on every save, so month lists and heatmaps
+-- no longer decode bitmaps. Existing months are summarized by AvailabilityService on startup.
+alter table availability_month add column available_slots integer;
+alter table availability_month add column booked_slots integer;
+alter table availability_month add column locked_slots integer;
+alter table availability_month add column unavailable_slots integer;
+alter table availability_month add column days_off integer;
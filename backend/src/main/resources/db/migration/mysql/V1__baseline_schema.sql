@@ -0,0 +1,84 @@
+-- Schema as it stood when ddl-auto=update still managed it. Databases created that way are
+-- baselined at this version and only pick up the migrations after it.
+
+create table users (
+    id bigint not null auto_increment,
+    email varchar(255),
+    full_name varchar(255),
+    password varchar(255),
+    phone varchar(255),
+    role enum ('ADMIN', 'INSTRUCTOR', 'LEARNER'),
+    primary key (id),
+    constraint uk_users_email unique (email)
+) engine=InnoDB;
+
+create table school (
+    id bigint not null auto_increment,
+    address varchar(255),
+    city varchar(255),
+    contact_phone varchar(255),
+    default_lesson_minutes integer,
+    description varchar(255),
+    name varchar(255),
+    price_per_lesson decimal(10,2),
+    rating double,
+    primary key (id)
+) engine=InnoDB;
+
+create table instructor (
+    id bigint not null auto_increment,
+    bio varchar(255),
+    name varchar(255),
+    rating double,
+    school_id bigint,
+    primary key (id),
+    constraint fk_instructor_school foreign key (school_id) references school (id)
+) engine=InnoDB;
+
+create table lesson_slot (
+    id bigint not null auto_increment,
+    available bit not null,
+    duration_minutes integer,
+    price decimal(10,2),
+    start_time datetime(6),
+    instructor_id bigint,
+    primary key (id),
+    constraint fk_lesson_slot_instructor foreign key (instructor_id) references instructor (id)
+) engine=InnoDB;
+
+create table booking (
+    id bigint not null auto_increment,
+    card_last4 varchar(255),
+    created_at datetime(6),
+    payment_method varchar(255),
+    status enum ('CANCELLED', 'CONFIRMED', 'PENDING'),
+    learner_id bigint,
+    slot_id bigint,
+    primary key (id),
+    constraint fk_booking_learner foreign key (learner_id) references users (id),
+    constraint fk_booking_slot foreign key (slot_id) references lesson_slot (id)
+) engine=InnoDB;
+
+create table review (
+    id bigint not null auto_increment,
+    comment varchar(255),
+    created_at datetime(6),
+    rating integer not null,
+    reviewer_id bigint,
+    school_id bigint,
+    primary key (id),
+    constraint fk_review_reviewer foreign key (reviewer_id) references users (id),
+    constraint fk_review_school foreign key (school_id) references school (id)
+) engine=InnoDB;
+
+create table driver_availability (
+    id bigint not null auto_increment,
+    availability_month varchar(255),
+    available_date date,
+    is_unavailable_day bit not null,
+    status varchar(255),
+    time_slot varchar(255),
+    instructor_id bigint,
+    primary key (id),
+    constraint fk_driver_availability_instructor foreign key (instructor_id) references instructor (id)
+) engine=InnoDB;
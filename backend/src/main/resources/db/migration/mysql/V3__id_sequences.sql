@@ -0,0 +1,18 @@
+-- Ids now come from pooled sequences (allocationSize 50), which Hibernate emulates on MySQL with
+-- one single-row table per sequence. Each is seeded so the first block Hibernate hands out starts
+-- right after the highest existing id.
+create table users_seq (next_val bigint) engine=InnoDB;
+create table school_seq (next_val bigint) engine=InnoDB;
+create table instructor_seq (next_val bigint) engine=InnoDB;
+create table lesson_slot_seq (next_val bigint) engine=InnoDB;
+create table booking_seq (next_val bigint) engine=InnoDB;
+create table review_seq (next_val bigint) engine=InnoDB;
+create table availability_month_seq (next_val bigint) engine=InnoDB;
+
+insert into users_seq select coalesce(max(id), 0) + 50 from users;
+insert into school_seq select coalesce(max(id), 0) + 50 from school;
+insert into instructor_seq select coalesce(max(id), 0) + 50 from instructor;
+insert into lesson_slot_seq select coalesce(max(id), 0) + 50 from lesson_slot;
+insert into booking_seq select coalesce(max(id), 0) + 50 from booking;
+insert into review_seq select coalesce(max(id), 0) + 50 from review;
+insert into availability_month_seq select coalesce(max(id), 0) + 50 from availability_month;
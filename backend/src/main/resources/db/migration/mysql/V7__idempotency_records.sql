@@ -0,0 +1,11 @@
+-- Responses to booking requests sent with an Idempotency-Key, replayed when the client retries
+create table idempotency_record (
+    id varchar(200) not null,
+    request_hash varchar(64),
+    status_code integer not null,
+    response_body mediumtext,
+    created_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_idempotency_record_created on idempotency_record (created_at);
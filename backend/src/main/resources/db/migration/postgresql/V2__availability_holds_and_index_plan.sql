@@ -0,0 +1,61 @@
+-- Month bitmaps replace the per-slot driver_availability rows (which are left in place, unmapped).
+-- The unique key is what findByInstructorAndMonth looks up and stops two requests creating the same month.
+create table availability_month (
+    id bigint not null,
+    availability_month varchar(255),
+    slot_states varchar(256),
+    version bigint,
+    instructor_id bigint,
+    primary key (id),
+    constraint uk_availability_month_instructor_month unique (instructor_id, availability_month),
+    constraint fk_availability_month_instructor foreign key (instructor_id) references instructor (id)
+);
+
+alter table lesson_slot add column version bigint;
+alter table booking add column hold_expires_at timestamp(6);
+
+-- The old find-or-create could materialize the same lesson twice. Keep the oldest row of each
+-- (instructor, start_time), move the other rows' bookings onto it and drop them, so the unique
+-- key below can be added; the kept row is taken if any of the merged rows was.
+create table lesson_slot_merge (
+    duplicate_id bigint not null,
+    kept_id bigint not null,
+    taken integer not null,
+    primary key (duplicate_id)
+);
+
+insert into lesson_slot_merge (duplicate_id, kept_id, taken)
+select s.id, k.kept_id, case when s.available then 0 else 1 end
+from lesson_slot s
+join (select instructor_id, start_time, min(id) as kept_id
+      from lesson_slot
+      where instructor_id is not null and start_time is not null
+      group by instructor_id, start_time
+      having count(*) > 1) k on k.instructor_id = s.instructor_id and k.start_time = s.start_time
+where s.id <> k.kept_id;
+
+update booking set slot_id = (select m.kept_id from lesson_slot_merge m where m.duplicate_id = booking.slot_id)
+where slot_id in (select duplicate_id from lesson_slot_merge);
+update lesson_slot set available = false where id in (select kept_id from lesson_slot_merge where taken = 1);
+delete from lesson_slot where id in (select duplicate_id from lesson_slot_merge);
+drop table lesson_slot_merge;
+
+-- findByInstructorAndStartTime, the per-instructor agenda and the slot search all lead with
+-- (instructor, start_time); unique so a lesson can only be materialized once
+alter table lesson_slot add constraint uk_lesson_slot_instructor_start unique (instructor_id, start_time);
+
+-- Hold expiry scan, status-filtered keyset pages and created-at keyset pages
+create index idx_booking_status_hold on booking (status, hold_expires_at);
+create index idx_booking_status_id on booking (status, id);
+create index idx_booking_created on booking (created_at, id);
+
+-- Review keyset pages per school
+create index idx_review_school_id on review (school_id, id);
+
+create index idx_school_city on school (city);
+
+-- PostgreSQL does not index foreign keys on its own; these back the joins and per-parent lookups
+create index idx_booking_slot on booking (slot_id);
+create index idx_booking_learner on booking (learner_id);
+create index idx_instructor_school on instructor (school_id);
+create index idx_review_reviewer on review (reviewer_id);
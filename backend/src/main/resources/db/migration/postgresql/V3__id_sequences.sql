@@ -0,0 +1,17 @@
+-- Ids now come from pooled sequences (allocationSize 50). Each sequence is seeded so the first
+-- block Hibernate hands out starts right after the highest existing id.
+create sequence users_seq start with 1 increment by 50;
+create sequence school_seq start with 1 increment by 50;
+create sequence instructor_seq start with 1 increment by 50;
+create sequence lesson_slot_seq start with 1 increment by 50;
+create sequence booking_seq start with 1 increment by 50;
+create sequence review_seq start with 1 increment by 50;
+create sequence availability_month_seq start with 1 increment by 50;
+
+select setval('users_seq', (select coalesce(max(id), 0) + 50 from users), false);
+select setval('school_seq', (select coalesce(max(id), 0) + 50 from school), false);
+select setval('instructor_seq', (select coalesce(max(id), 0) + 50 from instructor), false);
+select setval('lesson_slot_seq', (select coalesce(max(id), 0) + 50 from lesson_slot), false);
+select setval('booking_seq', (select coalesce(max(id), 0) + 50 from booking), false);
+select setval('review_seq', (select coalesce(max(id), 0) + 50 from review), false);
+select setval('availability_month_seq', (select coalesce(max(id), 0) + 50 from availability_month), false);
@@ -0,0 +1,11 @@
+-- Responses to booking requests sent with an Idempotency-Key, replayed when the client retries
+create table idempotency_record (
+    id varchar(200) not null,
+    request_hash varchar(64),
+    status_code integer not null,
+    response_body varchar(1000000),
+    created_at timestamp(6),
+    primary key (id)
+);
+
+create index idx_idempotency_record_created on idempotency_record (created_at);
@@ -0,0 +1,116 @@
+package com.example.drivingschool.config;
+
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import com.example.drivingschool.service.AvailabilityService;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Calendars kept as driver_availability rows before V2 come through V10 with their state intact. */
+@SpringBootTest
+class DriverAvailabilityMigrationTest {
+    @Autowired
+    private DriverAvailabilityMigration migration;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AvailabilityService availabilityService;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Test
+    void appliedOnStartup() {
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from \"flyway_schema_history\" where \"version\" = '10' and \"success\" = true", Integer.class));
+    }
+
+    @Test
+    void oldRowsBecomeMonthBitmapsWithCounts() throws Exception {
+        Instructor instructor = newInstructor();
+        YearMonth month = YearMonth.now().plusYears(2).withMonth(3);
+        LocalDate day = month.atDay(10);
+        LocalDate dayOff = month.atDay(11);
+        oldRow(instructor, day, "08:00", "available", false);
+        oldRow(instructor, day, "09:00", "booked", false);
+        oldRow(instructor, day, "10:00", "locked", false);
+        oldRow(instructor, day, "11:00", "unavailable", false);
+        oldRow(instructor, dayOff, "08:00", "available", false);
+        oldRow(instructor, dayOff, "00:00", "unavailable", true);
+        // A month already edited under the bitmaps keeps what it has
+        YearMonth edited = month.plusMonths(1);
+        availabilityService.enableMonth(instructor, edited.toString());
+        oldRow(instructor, edited.atDay(5), "08:00", "booked", false);
+
+        migrate();
+
+        assertEquals(SlotStatus.AVAILABLE, availabilityService.status(instructor, day, "08:00"));
+        assertEquals(SlotStatus.BOOKED, availabilityService.status(instructor, day, "09:00"));
+        assertEquals(SlotStatus.LOCKED, availabilityService.status(instructor, day, "10:00"));
+        assertEquals(SlotStatus.UNAVAILABLE, availabilityService.status(instructor, day, "11:00"));
+        assertNull(availabilityService.status(instructor, day, "12:00"));
+        assertEquals(SlotStatus.AVAILABLE, availabilityService.status(instructor, edited.atDay(5), "08:00"));
+        Map<String, Object> counts = jdbcTemplate.queryForMap("select available_slots, booked_slots, locked_slots, "
+                + "unavailable_slots, days_off from availability_month where instructor_id = ? and availability_month = ?",
+                instructor.getId(), month.toString());
+        assertEquals(1, ((Number) counts.get("available_slots")).intValue());
+        assertEquals(1, ((Number) counts.get("booked_slots")).intValue());
+        assertEquals(1, ((Number) counts.get("locked_slots")).intValue());
+        assertEquals(1, ((Number) counts.get("unavailable_slots")).intValue());
+        assertEquals(1, ((Number) counts.get("days_off")).intValue());
+        // Re-enabling leaves the booked time booked, and new months get ids clear of the migrated ones
+        assertFalse(availabilityService.enableMonth(instructor, month.toString()));
+        assertTrue(availabilityService.enableMonth(instructor, month.plusMonths(2).toString()));
+        assertEquals(SlotStatus.BOOKED, availabilityService.status(instructor, day, "09:00"));
+    }
+
+    private void migrate() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            migration.migrate(new Context() {
+                @Override
+                public Configuration getConfiguration() {
+                    return null;
+                }
+
+                @Override
+                public Connection getConnection() {
+                    return connection;
+                }
+            });
+        }
+    }
+
+    private void oldRow(Instructor instructor, LocalDate day, String timeSlot, String status, boolean unavailableDay) {
+        jdbcTemplate.update("insert into driver_availability (availability_month, available_date, is_unavailable_day, "
+                        + "status, time_slot, instructor_id) values (?, ?, ?, ?, ?, ?)",
+                YearMonth.from(day).toString(), day, unavailableDay, status, timeSlot, instructor.getId());
+    }
+
+    private Instructor newInstructor() {
+        School school = new School();
+        school.setName("Migrated School");
+        school = schoolRepository.save(school);
+        Instructor instructor = new Instructor();
+        instructor.setName("Migrated Instructor");
+        instructor.setSchool(school);
+        return instructorRepository.save(instructor);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.drivingschool.config;
+
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import com.example.drivingschool.service.AvailabilityService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trips and wall time for writing a month of per-slot rows (what enabling a month used to
+ * insert) with JDBC batching off, as under IDENTITY ids, and on, as the pooled sequences allow.
+ */
+@SpringBootTest
+class JdbcBatchingTest {
+    // 31 days of 10 time slots
+    private static final int ROWS = 310;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    private record Run(int statements, long millis) {}
+
+    @Test
+    void batchedInsertsTakeAFractionOfTheRoundTrips() {
+        // Warm up the JDBC and Hibernate paths so the timings compare like with like
+        insertMonth(newInstructor("warm-up"), 50);
+
+        Run unbatched = insertMonth(newInstructor("unbatched"), 1);
+        Run batched = insertMonth(newInstructor("batched"), 50);
+        System.out.printf("Inserting %d slot rows: unbatched %d statements in %d ms, batched %d statements in %d ms%n",
+                ROWS, unbatched.statements(), unbatched.millis(), batched.statements(), batched.millis());
+
+        assertTrue(unbatched.statements() >= ROWS, "every unbatched insert is its own round-trip");
+        // At most one prepared insert per batch of 50, plus one sequence call per 50 pooled ids
+        assertTrue(batched.statements() <= 2 * (ROWS / 50 + 1),
+                () -> "batched inserts ran " + batched.statements() + " statements");
+    }
+
+    @Test
+    void enablingAMonthIsAHandfulOfStatements() {
+        Instructor instructor = newInstructor("month");
+        String month = YearMonth.now().plusMonths(1).toString();
+        QueryCounter.reset();
+        long began = System.nanoTime();
+        availabilityService.enableMonth(instructor, month);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+        int statements = QueryCounter.count();
+        System.out.printf("Enabling a month: %d statements in %d ms%n", statements, millis);
+        // Lookup, id and one bitmap row, instead of a row per time slot
+        assertTrue(statements <= 4, () -> "enabling a month ran " + statements + " statements");
+    }
+
+    private Run insertMonth(Instructor instructor, int batchSize) {
+        LocalDateTime first = LocalDateTime.now().plusYears(1).withMinute(0).withSecond(0).withNano(0);
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            QueryCounter.reset();
+            long began = System.nanoTime();
+            for (int i = 0; i < ROWS; i++) {
+                LessonSlot slot = new LessonSlot();
+                slot.setInstructor(instructor);
+                slot.setStartTime(first.plusHours(i));
+                slot.setDurationMinutes(60);
+                slot.setPrice(BigDecimal.valueOf(350));
+                entityManager.persist(slot);
+            }
+            entityManager.flush();
+            return new Run(QueryCounter.count(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began));
+        });
+    }
+
+    private Instructor newInstructor(String name) {
+        School school = new School();
+        school.setName("Batching School " + name);
+        school = schoolRepository.save(school);
+        Instructor instructor = new Instructor();
+        instructor.setName("Batching Instructor " + name);
+        instructor.setSchool(school);
+        return instructorRepository.save(instructor);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.drivingschool.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A database from before V2 that holds the same lesson twice still migrates: the duplicate rows
+ * are merged into the oldest one, bookings included, before the unique key goes on.
+ */
+class LessonSlotDuplicatesMigrationTest {
+
+    @Test
+    void duplicateSlotsAreMergedBeforeTheUniqueKey() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:slot-duplicates;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        migrate(dataSource, "1");
+        jdbc.update("insert into school (id, name) values (1, 'Old School')");
+        jdbc.update("insert into instructor (id, name, school_id) values (1, 'Old Instructor', 1)");
+        jdbc.update("insert into users (id, email) values (1, 'old-learner@example.com')");
+        LocalDateTime start = LocalDateTime.of(2025, 5, 6, 9, 0);
+        jdbc.update("insert into lesson_slot (id, available, start_time, instructor_id) values (10, true, ?, 1)", start);
+        jdbc.update("insert into lesson_slot (id, available, start_time, instructor_id) values (11, false, ?, 1)", start);
+        jdbc.update("insert into lesson_slot (id, available, start_time, instructor_id) values (12, true, ?, 1)", start);
+        jdbc.update("insert into lesson_slot (id, available, start_time, instructor_id) values (13, true, ?, 1)",
+                start.plusHours(1));
+        jdbc.update("insert into booking (id, status, slot_id, learner_id) values (100, 'CONFIRMED', 11, 1)");
+        jdbc.update("insert into booking (id, status, slot_id, learner_id) values (101, 'CANCELLED', 12, 1)");
+
+        migrate(dataSource, "2");
+
+        assertEquals(List.of(10L, 13L), jdbc.queryForList("select id from lesson_slot order by id", Long.class));
+        assertEquals(List.of(10L, 10L), jdbc.queryForList("select slot_id from booking order by id", Long.class));
+        assertFalse(jdbc.queryForObject("select available from lesson_slot where id = 10", Boolean.class));
+        assertTrue(jdbc.queryForObject("select available from lesson_slot where id = 13", Boolean.class));
+    }
+
+    private static void migrate(DriverManagerDataSource dataSource, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
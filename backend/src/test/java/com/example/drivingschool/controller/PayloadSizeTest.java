@@ -0,0 +1,153 @@
+package com.example.drivingschool.controller;
+
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serialized size and Jackson time of an instructor's booking list as the flat BookingView the
+ * endpoints return, against the Booking entity graph (slot, instructor, school and learner)
+ * they used to return.
+ */
+@SpringBootTest
+class PayloadSizeTest {
+    private static final int ROWS = 200;
+    private static final int ROUNDS = 100;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private LessonSlotRepository slotRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Test
+    void bookingViewsAreSmallerAndFasterToSerialize() throws Exception {
+        Long instructorId = seed();
+        List<Booking> entities = loadEntities(instructorId);
+        List<BookingRepository.BookingView> views = bookingRepository.findForInstructor(instructorId);
+        assertEquals(ROWS, entities.size());
+        assertEquals(ROWS, views.size());
+
+        String entityJson = objectMapper.writeValueAsString(entities);
+        String viewJson = objectMapper.writeValueAsString(views);
+        double entityMicros = micros(() -> objectMapper.writeValueAsBytes(entities));
+        double viewMicros = micros(() -> objectMapper.writeValueAsBytes(views));
+        // What an endpoint pays: the query and the serialization
+        double entityRequestMicros = micros(() -> objectMapper.writeValueAsBytes(loadEntities(instructorId)));
+        double viewRequestMicros = micros(() -> objectMapper.writeValueAsBytes(bookingRepository.findForInstructor(instructorId)));
+        System.out.printf("%d bookings as entities: %d bytes, serialized in %.0f us, loaded and serialized in %.0f us; " +
+                        "as views: %d bytes, %.0f us, %.0f us%n",
+                ROWS, entityJson.length(), entityMicros, entityRequestMicros,
+                viewJson.length(), viewMicros, viewRequestMicros);
+
+        // The learner's credentials and contact details only ever travelled with the entity
+        assertTrue(entityJson.contains("\"password\""));
+        assertFalse(viewJson.contains("\"password\""));
+        assertFalse(viewJson.contains("\"email\""));
+        assertTrue(viewJson.length() * 2 < entityJson.length(),
+                () -> "views are " + viewJson.length() + " bytes, entities " + entityJson.length());
+        assertTrue(viewMicros < entityMicros,
+                () -> "views took " + viewMicros + " us to serialize, entities " + entityMicros);
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static double micros(Work work) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            work.run();
+        }
+        long began = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            work.run();
+        }
+        return (System.nanoTime() - began) / 1e3 / ROUNDS;
+    }
+
+    // The whole graph the endpoints used to serialize, fetched in one query
+    private List<Booking> loadEntities(Long instructorId) {
+        return new TransactionTemplate(transactionManager).execute(status -> entityManager
+                .createQuery("select b from Booking b join fetch b.learner join fetch b.slot s " +
+                        "join fetch s.instructor i join fetch i.school where i.id = :id order by s.startTime", Booking.class)
+                .setParameter("id", instructorId)
+                .getResultList());
+    }
+
+    private Long seed() {
+        School school = new School();
+        school.setName("Payload School");
+        school.setCity("Johannesburg");
+        school.setAddress("1 Payload Rd, Sandton");
+        school.setDescription("Modern fleet, dual controls, nervous drivers welcome.");
+        school.setContactPhone("+27 11 555 0101");
+        school.setPricePerLesson(BigDecimal.valueOf(350));
+        school.setDefaultLessonMinutes(60);
+        school.setLatitude(-26.1076);
+        school.setLongitude(28.0567);
+        school = schoolRepository.save(school);
+
+        Instructor instructor = new Instructor();
+        instructor.setName("Payload Instructor");
+        instructor.setBio("10 years experience, patient with first-time learners.");
+        instructor.setSchool(school);
+        instructor = instructorRepository.save(instructor);
+
+        LocalDateTime first = LocalDateTime.now().plusMonths(2).withMinute(0).withSecond(0).withNano(0);
+        List<User> learners = new ArrayList<>();
+        List<LessonSlot> slots = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            User learner = new User();
+            learner.setFullName("Payload Learner " + i);
+            learner.setEmail("payload-learner-" + i + "@example.com");
+            learner.setPhone("+27 82 555 " + String.format("%04d", i));
+            learner.setPassword("not-a-real-password-" + i);
+            learners.add(learner);
+            LessonSlot slot = new LessonSlot();
+            slot.setInstructor(instructor);
+            slot.setStartTime(first.plusHours(i));
+            slot.setDurationMinutes(60);
+            slot.setPrice(BigDecimal.valueOf(350));
+            slot.setAvailable(false);
+            slots.add(slot);
+        }
+        learners = userRepository.saveAll(learners);
+        slots = slotRepository.saveAll(slots);
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Booking booking = new Booking();
+            booking.setLearner(learners.get(i));
+            booking.setSlot(slots.get(i));
+            booking.setStatus(BookingStatus.CONFIRMED);
+            booking.setPaymentMethod("CARD");
+            booking.setCardLast4("4242");
+            bookings.add(booking);
+        }
+        bookingRepository.saveAll(bookings);
+        return instructor.getId();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.drivingschool.controller;
+
+import com.example.drivingschool.config.QueryCounter;
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.*;
+import com.example.drivingschool.service.AvailabilityService;
+import com.example.drivingschool.service.ReviewService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets for the list endpoints, counted by QueryCounter over the whole request,
+ * serialization included. Every list has ROWS entries, so an N+1 blows its budget many times over.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTest {
+    private static final int ROWS = 30;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private LessonSlotRepository slotRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ReviewService reviewService;
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    private Long schoolId;
+    private Long instructorId;
+    private Long learnerId;
+    private String month;
+
+    @BeforeAll
+    void seed() {
+        School school = new School();
+        school.setName("Query Budget School");
+        school.setCity("Budgetville");
+        school = schoolRepository.save(school);
+        schoolId = school.getId();
+
+        Instructor instructor = new Instructor();
+        instructor.setName("Query Budget Instructor");
+        instructor.setSchool(school);
+        instructor = instructorRepository.save(instructor);
+        instructorId = instructor.getId();
+        List<Instructor> colleagues = new ArrayList<>();
+        for (int i = 1; i < ROWS; i++) {
+            Instructor colleague = new Instructor();
+            colleague.setName("Query Budget Colleague " + i);
+            colleague.setSchool(school);
+            colleagues.add(colleague);
+        }
+        instructorRepository.saveAll(colleagues);
+
+        LocalDateTime start = LocalDateTime.now().plusMonths(1).withDayOfMonth(1).withHour(8)
+                .withMinute(0).withSecond(0).withNano(0);
+        month = YearMonth.from(start).toString();
+        List<User> learners = new ArrayList<>();
+        List<LessonSlot> slots = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            User learner = new User();
+            learner.setFullName("Budget Learner " + i);
+            learner.setEmail("budget-learner-" + i + "@example.com");
+            learners.add(learner);
+            LessonSlot slot = new LessonSlot();
+            slot.setInstructor(instructor);
+            slot.setStartTime(start.plusHours(i));
+            slot.setDurationMinutes(60);
+            slot.setPrice(BigDecimal.valueOf(350));
+            // Every other slot stays bookable, for the open slots list
+            slot.setAvailable(i % 2 == 0);
+            slots.add(slot);
+        }
+        learners = userRepository.saveAll(learners);
+        slots = slotRepository.saveAll(slots);
+        learnerId = learners.get(0).getId();
+
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Booking booking = new Booking();
+            // One learner holds half the bookings, for the learner's own list
+            booking.setLearner(learners.get(i % 2 == 0 ? 0 : i));
+            booking.setSlot(slots.get(i));
+            booking.setStatus(i % 3 == 0 ? BookingStatus.CONFIRMED : BookingStatus.PENDING);
+            bookings.add(booking);
+        }
+        bookingRepository.saveAll(bookings);
+
+        for (int i = 0; i < ROWS; i++) {
+            reviewService.createReview(schoolId, learners.get(i).getId(), instructorId, 1 + i % 5, "Lesson review " + i);
+        }
+        availabilityService.enableMonth(instructor, month);
+    }
+
+    @Test
+    void driverBookings() throws Exception {
+        assertWithinBudget(2, "$", ROWS, "/api/driver/{id}/bookings", instructorId);
+    }
+
+    @Test
+    void driverAgenda() throws Exception {
+        assertWithinBudget(2, "$", ROWS, "/api/driver/{id}/agenda?view=month&date={date}", instructorId, month + "-01");
+    }
+
+    @Test
+    void driverAgendaByStatus() throws Exception {
+        assertWithinBudget(2, "$", ROWS / 3, "/api/driver/{id}/agenda?view=month&date={date}&status=CONFIRMED",
+                instructorId, month + "-01");
+    }
+
+    @Test
+    void driverCalendar() throws Exception {
+        assertWithinBudget(2, "$", ROWS, "/api/driver/{id}/calendar/{month}", instructorId, month);
+    }
+
+    @Test
+    void learnerBookings() throws Exception {
+        assertWithinBudget(2, "$", ROWS / 2, "/api/users/{id}/bookings", learnerId);
+    }
+
+    @Test
+    void bookingPage() throws Exception {
+        assertWithinBudget(2, "$.items", ROWS, "/api/bookings?instructorId={id}&limit={limit}", instructorId, ROWS);
+    }
+
+    @Test
+    void adminBookingPage() throws Exception {
+        assertWithinBudget(2, "$.items", ROWS, "/api/admin/bookings?schoolId={id}&limit={limit}", schoolId, ROWS);
+    }
+
+    @Test
+    void openSlots() throws Exception {
+        assertWithinBudget(2, "$", ROWS / 2, "/api/instructors/{id}/slots", instructorId);
+    }
+
+    @Test
+    void schoolInstructors() throws Exception {
+        assertWithinBudget(2, "$", ROWS, "/api/schools/{id}/instructors", schoolId);
+    }
+
+    @Test
+    void schoolReviews() throws Exception {
+        assertWithinBudget(2, "$.items", ROWS, "/api/reviews/school/{id}?sort=HIGHEST&limit={limit}", schoolId, ROWS);
+    }
+
+    @Test
+    void adminReviewPage() throws Exception {
+        assertWithinBudget(2, "$.items", ROWS, "/api/admin/reviews?schoolId={id}&limit={limit}", schoolId, ROWS);
+    }
+
+    @Test
+    void driverMonths() throws Exception {
+        assertWithinBudget(2, "$.enabled", 1, "/api/admin/drivers/{id}/months", instructorId);
+    }
+
+    private void assertWithinBudget(int budget, String listPath, int minItems, String url, Object... uriVariables)
+            throws Exception {
+        mvc.perform(get(url, uriVariables))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(listPath + ".length()", greaterThanOrEqualTo(minItems)));
+        // QueryBudgetInterceptor resets the count when the request starts and MockMvc runs it on this thread
+        int statements = QueryCounter.count();
+        assertTrue(statements <= budget, () -> url + " ran " + statements + " SQL statements, budget is " + budget);
+    }
+}
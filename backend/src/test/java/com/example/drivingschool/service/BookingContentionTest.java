@@ -0,0 +1,161 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.controller.BookingController;
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hundreds of learners booking the same lesson at once: exactly one may win, every other one
+ * must be turned away cleanly, and the slot and calendar must end up agreeing with the booking.
+ */
+@SpringBootTest
+class BookingContentionTest {
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 32;
+    private static final Set<String> CONFLICTS = Set.of("Slot already booked", "Time slot is not available");
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private AvailabilityService availabilityService;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private LessonSlotRepository slotRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Outcome(Booking booking, Throwable error, long nanos) {}
+
+    @Test
+    void oneWinnerForAnExistingSlot() throws Exception {
+        Instructor instructor = newInstructor("slot");
+        LessonSlot slot = new LessonSlot();
+        slot.setInstructor(instructor);
+        slot.setStartTime(LocalDateTime.now().plusDays(7).withHour(9).withMinute(0).withSecond(0).withNano(0));
+        slot.setDurationMinutes(60);
+        slot.setPrice(BigDecimal.valueOf(350));
+        Long slotId = slotRepository.save(slot).getId();
+
+        List<Outcome> outcomes = race("existing slot", i -> () -> bookingService.createBooking(
+                new BookingController.CreateBookingRequest(null, slotId, "Racer " + i,
+                        "slot-racer-" + i + "@example.com", null, "CASH", null)));
+
+        Booking winner = singleWinner(outcomes);
+        assertEquals(slotId, winner.getSlot().getId());
+        assertEquals(1, bookingsFor(slotId));
+        assertFalse(slotRepository.findById(slotId).orElseThrow().isAvailable());
+    }
+
+    @Test
+    void oneWinnerForAnOpenTimeSlot() throws Exception {
+        Instructor instructor = newInstructor("calendar");
+        YearMonth month = YearMonth.now().plusMonths(1);
+        availabilityService.enableMonth(instructor, month.toString());
+        LocalDate date = month.atDay(15);
+
+        List<Outcome> outcomes = race("open time slot", i -> () -> bookingService.createBookingFromDriverAvailability(
+                new BookingController.CreateDriverAvailabilityBookingRequest(null, instructor.getId(),
+                        date.toString(), "10:00", "Racer " + i, "calendar-racer-" + i + "@example.com",
+                        null, "CASH", null)));
+
+        Booking winner = singleWinner(outcomes);
+        LessonSlot slot = slotRepository.findById(winner.getSlot().getId()).orElseThrow();
+        assertEquals(date.atTime(10, 0), slot.getStartTime());
+        assertEquals(1, bookingsFor(slot.getId()));
+        // The slot row and the calendar bitmap are separate writes; both must show the lesson taken
+        assertFalse(slot.isAvailable());
+        assertEquals(SlotStatus.BOOKED, availabilityService.status(instructor, date, "10:00"));
+    }
+
+    private List<Outcome> race(String label, IntFunction<Callable<Booking>> request) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Outcome>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            Callable<Booking> call = request.apply(i);
+            futures.add(pool.submit(() -> {
+                start.await();
+                long began = System.nanoTime();
+                try {
+                    return new Outcome(call.call(), null, System.nanoTime() - began);
+                } catch (RuntimeException e) {
+                    return new Outcome(null, e, System.nanoTime() - began);
+                }
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        List<Outcome> outcomes = new ArrayList<>();
+        for (Future<Outcome> future : futures) {
+            outcomes.add(future.get(2, TimeUnit.MINUTES));
+        }
+        long wallNanos = System.nanoTime() - began;
+        pool.shutdown();
+        report(label, outcomes, wallNanos);
+        return outcomes;
+    }
+
+    private static Booking singleWinner(List<Outcome> outcomes) {
+        List<Booking> winners = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            if (outcome.booking() != null) {
+                winners.add(outcome.booking());
+                continue;
+            }
+            // Losers get the same conflict a learner sees when the slot is already taken, nothing else
+            Throwable error = outcome.error();
+            assertTrue(error instanceof IllegalStateException && CONFLICTS.contains(error.getMessage()),
+                    () -> "Unexpected failure: " + error);
+        }
+        assertEquals(1, winners.size(), "exactly one booking must win the slot");
+        return winners.get(0);
+    }
+
+    private static void report(String label, List<Outcome> outcomes, long wallNanos) {
+        long[] latencies = outcomes.stream().mapToLong(Outcome::nanos).sorted().toArray();
+        long p50 = latencies[(int) Math.ceil(latencies.length * 0.50) - 1];
+        long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+        System.out.printf("Contention on one %s: %d requests on %d threads in %d ms, %.0f requests/s, " +
+                        "p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                label, outcomes.size(), THREADS, TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                outcomes.size() / (wallNanos / 1e9), p50 / 1e6, p99 / 1e6,
+                Arrays.stream(latencies).max().orElse(0) / 1e6);
+    }
+
+    private Instructor newInstructor(String name) {
+        School school = new School();
+        school.setName("Contention School " + name);
+        school = schoolRepository.save(school);
+        Instructor instructor = new Instructor();
+        instructor.setName("Contention Instructor " + name);
+        instructor.setSchool(school);
+        return instructorRepository.save(instructor);
+    }
+
+    private int bookingsFor(Long slotId) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from booking where slot_id = ?", Integer.class, slotId);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.controller.BookingController;
+import com.example.drivingschool.model.Instructor;
+import com.example.drivingschool.model.LessonSlot;
+import com.example.drivingschool.model.School;
+import com.example.drivingschool.model.SlotStatus;
+import com.example.drivingschool.repository.BookingRepository;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Bookings through the queue against the same bookings made directly, plus the ticket flow a
+ * client sees: 202 with a ticket, the long-poll for its outcome, a full queue, and a batch in
+ * which some requests fail while the rest still commit.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingPipelineTest {
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 32;
+    private static final int INSTRUCTORS = 10;
+
+    @Autowired
+    private BookingPipeline bookingPipeline;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BatchBookingService batchBookingService;
+    @Autowired
+    private AvailabilityService availabilityService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private LessonSlotRepository slotRepository;
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void pipelineAgainstDirectBookings() throws Exception {
+        YearMonth month = YearMonth.now().plusMonths(1);
+
+        List<Instructor> queued = instructors("queued", month);
+        long[] pipeline = measure("pipeline", i -> () -> {
+            BookingPipeline.QueuedBooking ticket = bookingPipeline.submit(lesson(queued, month, i));
+            BookingPipeline.QueuedBooking outcome = bookingPipeline.outcome(ticket.ticket()).orElseThrow()
+                    .get(1, TimeUnit.MINUTES);
+            assertEquals(BookingPipeline.State.BOOKED, outcome.state(), () -> "Rejected: " + outcome.error());
+            assertEquals(outcome.bookingId(), outcome.booking().getId());
+            return outcome.bookingId();
+        });
+
+        List<Instructor> direct = instructors("direct", month);
+        long[] calendar = measure("driver-availability, direct", i ->
+                () -> bookingService.createBookingFromDriverAvailability(lesson(direct, month, i)).getId());
+
+        Instructor owner = instructors("slots", month).get(0);
+        List<LessonSlot> slots = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            LessonSlot slot = new LessonSlot();
+            slot.setInstructor(owner);
+            slot.setStartTime(month.atDay(1 + i % 28).atTime(8, 0).plusMinutes(i / 28));
+            slot.setDurationMinutes(60);
+            slot.setPrice(BigDecimal.valueOf(350));
+            slots.add(slot);
+        }
+        List<Long> slotIds = slotRepository.saveAll(slots).stream().map(LessonSlot::getId).toList();
+        long[] bookSlot = measure("bookSlot, direct", i -> () -> bookingService.createBooking(
+                new BookingController.CreateBookingRequest(null, slotIds.get(i), "Slot Learner " + i,
+                        "pipeline-slot-" + i + "@example.com", null, "CASH", null)).getId());
+
+        // Every request booked its own lesson on each path
+        for (long[] bookingIds : List.of(pipeline, calendar, bookSlot)) {
+            assertEquals(REQUESTS, Arrays.stream(bookingIds).distinct().count());
+        }
+        assertEquals(SlotStatus.BOOKED, availabilityService.status(queued.get(3), month.atDay(1), "08:00"));
+    }
+
+    @Test
+    void ticketIsAnsweredWith202AndLongPolled() throws Exception {
+        YearMonth month = YearMonth.now().plusMonths(1);
+        Instructor instructor = instructors("http", month).get(0);
+        String body = """
+                {"instructorId": %d, "date": "%s", "timeSlot": "09:00", "fullName": "Http Learner",
+                 "email": "pipeline-http@example.com", "paymentMethod": "CASH"}
+                """.formatted(instructor.getId(), month.atDay(20));
+
+        MvcResult accepted = mvc.perform(post("/api/bookings/driver-availability?async=true")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("QUEUED"))
+                .andReturn();
+        String location = accepted.getResponse().getHeader("Location");
+        assertNotNull(location);
+
+        MvcResult poll = mvc.perform(get(location).param("waitSeconds", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("BOOKED"))
+                .andExpect(jsonPath("$.booking.instructorId").value(instructor.getId()));
+
+        MvcResult missing = mvc.perform(get("/api/bookings/queued/no-such-ticket"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(missing)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void fullQueueTurnsRequestsAway() {
+        YearMonth month = YearMonth.now().plusMonths(1);
+        List<Instructor> instructors = instructors("full", month);
+        // Not started, so nothing drains the two places in the queue
+        BookingPipeline pipeline = new BookingPipeline(batchBookingService, bookingService, bookingRepository, 2, 50, 5, 15);
+        BookingPipeline.QueuedBooking first = pipeline.submit(lesson(instructors, month, 0));
+        pipeline.submit(lesson(instructors, month, 1));
+
+        assertThrows(RejectedExecutionException.class, () -> pipeline.submit(lesson(instructors, month, 2)));
+
+        pipeline.stop();
+        BookingPipeline.QueuedBooking outcome = pipeline.outcome(first.ticket()).orElseThrow().join();
+        assertEquals(BookingPipeline.State.REJECTED, outcome.state());
+    }
+
+    @Test
+    void failedRequestsDoNotSinkTheirBatch() throws Exception {
+        YearMonth month = YearMonth.now().plusMonths(1);
+        List<Instructor> instructors = instructors("mixed", month);
+        BookingPipeline pipeline = new BookingPipeline(batchBookingService, bookingService, bookingRepository, 100, 50, 5, 15);
+        BookingController.CreateDriverAvailabilityBookingRequest taken = lesson(instructors, month, 0);
+        List<BookingPipeline.QueuedBooking> tickets = List.of(
+                pipeline.submit(taken),
+                // Same lesson again: the earlier request wins it
+                pipeline.submit(new BookingController.CreateDriverAvailabilityBookingRequest(null, taken.instructorId(),
+                        taken.date(), taken.timeSlot(), "Second Learner", "pipeline-second@example.com", null, "CASH", null)),
+                pipeline.submit(new BookingController.CreateDriverAvailabilityBookingRequest(null, Long.MAX_VALUE,
+                        taken.date(), taken.timeSlot(), "Lost Learner", "pipeline-lost@example.com", null, "CASH", null)),
+                // The month after is not enabled
+                pipeline.submit(new BookingController.CreateDriverAvailabilityBookingRequest(null, taken.instructorId(),
+                        month.plusMonths(1).atDay(3).toString(), "08:00", "Early Learner", "pipeline-early@example.com",
+                        null, "CASH", null)),
+                pipeline.submit(lesson(instructors, month, 1)));
+        // Everything is queued before the worker starts, so it all goes out as one batch
+        pipeline.start();
+        try {
+            List<BookingPipeline.QueuedBooking> outcomes = new ArrayList<>();
+            for (BookingPipeline.QueuedBooking ticket : tickets) {
+                outcomes.add(pipeline.outcome(ticket.ticket()).orElseThrow().get(30, TimeUnit.SECONDS));
+            }
+            List<BookingPipeline.State> states = outcomes.stream().map(BookingPipeline.QueuedBooking::state).toList();
+            assertEquals(List.of(BookingPipeline.State.BOOKED, BookingPipeline.State.REJECTED,
+                    BookingPipeline.State.REJECTED, BookingPipeline.State.REJECTED, BookingPipeline.State.BOOKED), states);
+            for (BookingPipeline.QueuedBooking outcome : outcomes) {
+                if (outcome.state() == BookingPipeline.State.BOOKED) {
+                    assertTrue(bookingRepository.existsById(outcome.bookingId()));
+                } else {
+                    assertNotNull(outcome.error());
+                }
+            }
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    private long[] measure(String label, IntFunction<Callable<Long>> request) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            Callable<Long> call = request.apply(i);
+            futures.add(pool.submit(() -> {
+                start.await();
+                long began = System.nanoTime();
+                Long bookingId = call.call();
+                return new long[] {bookingId, System.nanoTime() - began};
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        long[] bookingIds = new long[REQUESTS];
+        long[] latencies = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long[] result = futures.get(i).get(2, TimeUnit.MINUTES);
+            bookingIds[i] = result[0];
+            latencies[i] = result[1];
+        }
+        long wallNanos = System.nanoTime() - began;
+        pool.shutdown();
+        Arrays.sort(latencies);
+        System.out.printf("Bookings via %s: %d requests on %d threads in %d ms, %.0f bookings/s, p50 %.1f ms, p99 %.1f ms%n",
+                label, REQUESTS, THREADS, TimeUnit.NANOSECONDS.toMillis(wallNanos), REQUESTS / (wallNanos / 1e9),
+                latencies[REQUESTS / 2 - 1] / 1e6, latencies[(int) Math.ceil(REQUESTS * 0.99) - 1] / 1e6);
+        return bookingIds;
+    }
+
+    // Request i books its own lesson: instructors take turns, each through the month's days and times
+    private static BookingController.CreateDriverAvailabilityBookingRequest lesson(List<Instructor> instructors,
+                                                                                   YearMonth month, int i) {
+        int lesson = i / INSTRUCTORS;
+        LocalDate date = month.atDay(1 + lesson % 28);
+        String timeSlot = AvailabilityService.TIME_SLOTS.get(lesson / 28);
+        return new BookingController.CreateDriverAvailabilityBookingRequest(null, instructors.get(i % INSTRUCTORS).getId(),
+                date.toString(), timeSlot, "Pipeline Learner " + i,
+                "pipeline-" + instructors.get(0).getId() + "-" + i + "@example.com", null, "CASH", null);
+    }
+
+    private List<Instructor> instructors(String name, YearMonth month) {
+        School school = new School();
+        school.setName("Pipeline School " + name);
+        school = schoolRepository.save(school);
+        List<Instructor> instructors = new ArrayList<>();
+        for (int i = 0; i < INSTRUCTORS; i++) {
+            Instructor instructor = new Instructor();
+            instructor.setName("Pipeline Instructor " + name + " " + i);
+            instructor.setSchool(school);
+            instructor = instructorRepository.save(instructor);
+            availabilityService.enableMonth(instructor, month.toString());
+            instructors.add(instructor);
+        }
+        return instructors;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Retries racing the first request with the same Idempotency-Key: the key row decides which one
+ * runs, the rest get its answer replayed. A claim nobody answers is taken over after its lease.
+ */
+@SpringBootTest
+class IdempotencyServiceTest {
+    private static final int REQUESTS = 50;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private IdempotencyRecordRepository repository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentRetriesRunTheActionOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<ResponseEntity<?>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return idempotencyService.execute(key, "test", Map.of("slot", 1), () -> {
+                        runs.incrementAndGet();
+                        sleep(200);
+                        return ResponseEntity.ok(Map.of("booking", 42));
+                    });
+                }));
+            }
+            start.countDown();
+            int replayed = 0;
+            for (Future<ResponseEntity<?>> future : futures) {
+                ResponseEntity<?> response = future.get(30, TimeUnit.SECONDS);
+                assertEquals(200, response.getStatusCode().value());
+                if (response.getHeaders().containsKey("Idempotent-Replayed")) {
+                    assertEquals("{\"booking\":42}", response.getBody());
+                    replayed++;
+                }
+            }
+            assertEquals(1, runs.get());
+            assertEquals(REQUESTS - 1, replayed);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void differentRequestWithTheSameKeyIsRejected() {
+        String key = UUID.randomUUID().toString();
+        idempotencyService.execute(key, "test", Map.of("slot", 1), () -> ResponseEntity.ok(Map.of("booking", 1)));
+
+        ResponseEntity<?> response = idempotencyService.execute(key, "test", Map.of("slot", 2),
+                () -> fail("a reused key must not run again"));
+
+        assertEquals(422, response.getStatusCode().value());
+    }
+
+    @Test
+    void failedAttemptReleasesTheKey() {
+        String key = UUID.randomUUID().toString();
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(key, "test", Map.of("slot", 1),
+                () -> { throw new IllegalStateException("Slot is no longer available"); }));
+        ResponseEntity<?> rejected = idempotencyService.execute(key, "test", Map.of("slot", 1),
+                () -> ResponseEntity.badRequest().body(Map.of("error", "no")));
+        assertEquals(400, rejected.getStatusCode().value());
+
+        ResponseEntity<?> response = idempotencyService.execute(key, "test", Map.of("slot", 1),
+                () -> ResponseEntity.ok(Map.of("booking", 3)));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertFalse(response.getHeaders().containsKey("Idempotent-Replayed"));
+    }
+
+    @Test
+    void claimLeftByACrashIsTakenOverAfterItsLease() {
+        String key = UUID.randomUUID().toString();
+        // The first attempt's instance dies mid-request an hour ago, its claim never answered or released
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(key, "test", Map.of("slot", 1), () -> {
+            jdbcTemplate.update("update idempotency_record set created_at = ? where id = ?",
+                    LocalDateTime.now().minusHours(1), "test " + key);
+            throw new IllegalStateException("Instance went away");
+        }));
+
+        ResponseEntity<?> response = idempotencyService.execute(key, "test", Map.of("slot", 1),
+                () -> ResponseEntity.ok(Map.of("booking", 4)));
+        assertEquals(200, response.getStatusCode().value());
+        assertFalse(response.getHeaders().containsKey("Idempotent-Replayed"));
+
+        ResponseEntity<?> replayed = idempotencyService.execute(key, "test", Map.of("slot", 1),
+                () -> fail("an answered key must not run again"));
+        assertEquals("{\"booking\":4}", replayed.getBody());
+    }
+
+    @Test
+    void waitersBeyondTheCapGet409AtOnce() {
+        String key = UUID.randomUUID().toString();
+        IdempotencyService noWaiting = new IdempotencyService(repository, objectMapper, 100, 24, 10, 20, 0);
+        List<ResponseEntity<?>> retries = new ArrayList<>();
+
+        idempotencyService.execute(key, "test", Map.of("slot", 1), () -> {
+            long began = System.nanoTime();
+            retries.add(noWaiting.execute(key, "test", Map.of("slot", 1), () -> fail("the key is held")));
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - began) < 1);
+            return ResponseEntity.ok(Map.of("booking", 5));
+        });
+
+        assertEquals(409, retries.get(0).getStatusCode().value());
+        assertEquals("1", retries.get(0).getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.drivingschool.service;
+
+import com.example.drivingschool.controller.BookingController;
+import com.example.drivingschool.model.*;
+import com.example.drivingschool.repository.InstructorRepository;
+import com.example.drivingschool.repository.LessonSlotRepository;
+import com.example.drivingschool.repository.SchoolRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class WaitlistServiceTest {
+    @Autowired
+    private WaitlistService waitlistService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private AvailabilityService availabilityService;
+    @Autowired
+    private SchoolRepository schoolRepository;
+    @Autowired
+    private InstructorRepository instructorRepository;
+    @Autowired
+    private LessonSlotRepository slotRepository;
+    @Autowired
+    private CascadeDeleteService cascadeDeleteService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cancellingAConfirmedLessonHandsItToTheWaitlist() {
+        Instructor instructor = newInstructor("cancel");
+        YearMonth month = YearMonth.now().plusMonths(1);
+        availabilityService.enableMonth(instructor, month.toString());
+        LocalDate date = month.atDay(16);
+        Booking booking = bookingService.createBookingFromDriverAvailability(
+                new BookingController.CreateDriverAvailabilityBookingRequest(null, instructor.getId(),
+                        date.toString(), "11:00", "First Learner", "waitlist-first@example.com", null, "CASH", null));
+        bookingService.confirmBooking(booking.getId());
+        assertEquals(SlotStatus.LOCKED, availabilityService.status(instructor, date, "11:00"));
+        Long slotId = booking.getSlot().getId();
+
+        WaitlistService.Position first = waitlistService.join(slotId, null, "waitlist-second@example.com",
+                "Second Learner", null, "CASH", null);
+        WaitlistService.Position second = waitlistService.join(slotId, null, "waitlist-third@example.com",
+                "Third Learner", null, "CASH", null);
+        assertEquals(1, first.position());
+        assertEquals(2, second.position());
+
+        bookingService.cancelBooking(booking.getId());
+
+        // The first waitlisted learner now holds the lesson, pending the instructor's confirmation
+        assertFalse(slotRepository.findById(slotId).orElseThrow().isAvailable());
+        assertEquals(SlotStatus.BOOKED, availabilityService.status(instructor, date, "11:00"));
+        assertEquals(1, waitlistService.position(second.entryId()).position());
+        assertThrows(NoSuchElementException.class, () -> waitlistService.position(first.entryId()));
+    }
+
+    @Test
+    void waitlistsOfStartedLessonsArePurged() {
+        Instructor instructor = newInstructor("purge");
+        LessonSlot slot = new LessonSlot();
+        slot.setInstructor(instructor);
+        slot.setStartTime(LocalDateTime.now().plusDays(3).withNano(0));
+        slot.setDurationMinutes(60);
+        slot.setAvailable(false);
+        Long slotId = slotRepository.save(slot).getId();
+        WaitlistService.Position entry = waitlistService.join(slotId, null, "waitlist-late@example.com",
+                "Late Learner", null, "CASH", null);
+
+        jdbcTemplate.update("update lesson_slot set start_time = ? where id = ?", LocalDateTime.now().minusHours(1), slotId);
+        waitlistService.purgeStarted();
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from waitlist_entry where slot_id = ?",
+                Integer.class, slotId));
+        assertThrows(NoSuchElementException.class, () -> waitlistService.position(entry.entryId()));
+    }
+
+    @Test
+    void deletingTheInstructorDropsTheirWaitlists() {
+        Instructor instructor = newInstructor("deleted");
+        LessonSlot slot = new LessonSlot();
+        slot.setInstructor(instructor);
+        slot.setStartTime(LocalDateTime.now().plusDays(4).withNano(0));
+        slot.setDurationMinutes(60);
+        slot.setAvailable(false);
+        Long slotId = slotRepository.save(slot).getId();
+        WaitlistService.Position entry = waitlistService.join(slotId, null, "waitlist-orphan@example.com",
+                "Orphan Learner", null, "CASH", null);
+
+        cascadeDeleteService.deleteInstructor(instructor.getId());
+
+        assertFalse(slotRepository.existsById(slotId));
+        assertThrows(NoSuchElementException.class, () -> waitlistService.position(entry.entryId()));
+    }
+
+    private Instructor newInstructor(String name) {
+        School school = new School();
+        school.setName("Waitlist School " + name);
+        school = schoolRepository.save(school);
+        Instructor instructor = new Instructor();
+        instructor.setName("Waitlist Instructor " + name);
+        instructor.setSchool(school);
+        return instructorRepository.save(instructor);
+    }
+}